@@ -0,0 +1,105 @@
+package com.msr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.msr.model.Site;
+import com.msr.model.UseType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Encoding and decoding of a site list as JSON, Smile and CBOR, with the mappers Spring MVC's converters use.
+ *
+ * The payloadBytes counter reports the encoded size of the list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SiteEncodingBenchmark {
+
+    public enum Format {
+        JSON(Jackson2ObjectMapperBuilder::json),
+        SMILE(Jackson2ObjectMapperBuilder::smile),
+        CBOR(Jackson2ObjectMapperBuilder::cbor);
+
+        private final Supplier<Jackson2ObjectMapperBuilder> builder;
+
+        Format(Supplier<Jackson2ObjectMapperBuilder> builder) {
+            this.builder = builder;
+        }
+    }
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private Format format;
+
+    @Param({"100", "10000"})
+    private int sites;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private List<Site> siteList;
+
+    private byte[] encoded;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Payload {
+        public long payloadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            payloadBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = format.builder.get().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Site.class));
+        reader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Site.class));
+
+        UseType office = UseType.builder().id(54).name("Office").build();
+        siteList = new ArrayList<>(sites);
+        for (int i = 1; i <= sites; i++) {
+            siteList.add(Site.builder().id(i).name("Site " + i).address(i + " Broadway Suite 1000").city("San Diego")
+                             .state("CA").zipcode("92101").totalSize(1000 * i).primaryType(office).build());
+        }
+        encoded = writer.writeValueAsBytes(siteList);
+    }
+
+    @Benchmark
+    public byte[] encode(Payload payload) throws IOException {
+        byte[] bytes = writer.writeValueAsBytes(siteList);
+        payload.payloadBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<Site> decode() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
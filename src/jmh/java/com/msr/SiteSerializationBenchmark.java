@@ -0,0 +1,72 @@
+package com.msr;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.msr.model.Site;
+import com.msr.model.UseType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of sites with the object mapper defaults Spring MVC uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SiteSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int sites;
+
+    private ObjectWriter listWriter;
+
+    private ObjectWriter siteWriter;
+
+    private List<Site> siteList;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Site.class));
+        siteWriter = objectMapper.writerFor(Site.class);
+
+        UseType office = UseType.builder().id(54).name("Office").build();
+        siteList = new ArrayList<>(sites);
+        for (int i = 1; i <= sites; i++) {
+            siteList.add(Site.builder().id(i).name("Site " + i).address(i + " Broadway Suite 1000").city("San Diego")
+                             .state("CA").zipcode("92101").totalSize(1000 * i).primaryType(office).build());
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(siteList);
+    }
+
+    @Benchmark
+    public int serializeEach() throws JsonProcessingException {
+        int bytes = 0;
+        for (Site site : siteList) {
+            bytes += siteWriter.writeValueAsBytes(site).length;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,76 @@
+package com.msr;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the web application with springfox scanning at startup on and off.
+ *
+ * Every sample is the first start in a fresh JVM, which is what a new replica pays. The contextReadyMillis counter
+ * is the start alone, heapUsedMegabytes the heap still in use after a full GC once the context is ready.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    @Param({"true", "false"})
+    private boolean runtimeScan;
+
+    private ConfigurableApplicationContext context;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long contextReadyMillis;
+        public long heapUsedMegabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            contextReadyMillis = 0;
+            heapUsedMegabytes = 0;
+        }
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext start(Footprint footprint) {
+        long start = System.nanoTime();
+        context = new SpringApplicationBuilder(BuildingsApiApplication.class)
+                .properties("server.port=0",
+                            "sites.swagger.runtime-scan.enabled=" + runtimeScan,
+                            "logging.level.root=WARN")
+                .run();
+        footprint.contextReadyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.gc();
+        footprint.heapUsedMegabytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+        return context;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.msr.data;
+
+import com.msr.model.Site;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SiteTextIndex} over the given number of sites with names, streets and cities drawn from small vocabularies,
+ * so common words have long posting lists: ranked search for a rare and a common word, reindexing one renamed site,
+ * and building the whole index, the cost an update would have without incremental maintenance.
+ *
+ * The indexBytes and postingBytes counters report the estimated footprint of the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SiteTextIndexBenchmark {
+
+    private static final String[] NAME_WORDS = {"Park", "Plaza", "Tower", "Center", "Square", "Petco", "Arclight",
+            "Bellagio", "Fridays", "Tavern", "Bowl", "Village", "Office", "Warehouse", "Campus", "Hotel", "Mall",
+            "Medical", "Studio", "Market"};
+
+    private static final String[] STREETS = {"Broadway", "Main St", "Market St", "Park Blvd", "Fifth Ave",
+            "La Jolla Village Dr", "Las Vegas Blvd", "Mission Blvd", "Harbor Dr", "Elm St"};
+
+    private static final String[] CITIES = {"San Diego", "San Francisco", "Las Vegas", "Austin", "Dallas",
+            "New York", "Seattle", "Minneapolis", "Miami", "Sacramento"};
+
+    @Param({"10000", "100000", "1000000"})
+    private int sites;
+
+    private List<Site> siteList;
+
+    private SiteTextIndex index;
+
+    private Map<String, Long> footprint;
+
+    private Random random;
+
+    /* Sites currently indexed with " Annex" appended to their name */
+    private final BitSet annexed = new BitSet();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long indexBytes;
+        public long postingBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            indexBytes = 0;
+            postingBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        siteList = new ArrayList<>(sites);
+        for (int id = 1; id <= sites; id++) {
+            // a unique word per site keeps the vocabulary growing with the data, like real names do
+            String name = NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " "
+                    + NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + Integer.toString(id, 36);
+            siteList.add(Site.builder().id(id).name(name)
+                             .address((1 + random.nextInt(9999)) + " " + STREETS[random.nextInt(STREETS.length)])
+                             .city(CITIES[random.nextInt(CITIES.length)]).state("CA").zipcode("92101").build());
+        }
+        index = SiteTextIndex.of(siteList);
+        footprint = index.footprint();
+    }
+
+    @Benchmark
+    public int[] searchRareWord(Footprint footprint) {
+        footprint.indexBytes = this.footprint.get("totalBytes");
+        footprint.postingBytes = this.footprint.get("postingBytes");
+        return index.search(Integer.toString(sites / 2, 36), 20);
+    }
+
+    @Benchmark
+    public int[] searchCommonWords() {
+        return index.search("petco park broadway", 20);
+    }
+
+    @Benchmark
+    public void updateOneSite() {
+        int row = random.nextInt(sites);
+        Site site = siteList.get(row);
+        annexed.flip(row);
+        String name = annexed.get(row) ? site.getName() + " Annex" : site.getName();
+        index.update(Collections.singletonList(site.toBuilder().name(name).build()), Collections.emptySet());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SiteTextIndex rebuild() {
+        return SiteTextIndex.of(siteList);
+    }
+}
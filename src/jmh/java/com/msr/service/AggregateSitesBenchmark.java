@@ -0,0 +1,77 @@
+package com.msr.service;
+
+import com.msr.model.Site;
+import com.msr.model.SiteUse;
+import com.msr.model.UseType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory aggregation of {@link SiteService#aggregateSites(Site)} over 1000 sites.
+ *
+ * usesPerSite is the average number of uses, spread is how many distinct use types they are drawn from: with 1 every
+ * use adds to the same map entry, with 100 nearly every use is a new one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregateSitesBenchmark {
+
+    private static final int SITES = 1000;
+
+    @Param({"1", "8", "64"})
+    private int usesPerSite;
+
+    @Param({"1", "10", "100"})
+    private int spread;
+
+    private final SiteService siteService = new SiteService();
+
+    private List<Site> sites;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        UseType[] useTypes = new UseType[spread];
+        for (int i = 0; i < spread; i++) {
+            useTypes[i] = UseType.builder().id(i + 1).name("Type " + (i + 1)).build();
+        }
+
+        sites = new ArrayList<>(SITES);
+        int siteUseId = 1;
+        for (int s = 0; s < SITES; s++) {
+            int uses = usesPerSite == 1 ? 1 : 1 + random.nextInt(2 * usesPerSite - 1);
+            List<SiteUse> siteUses = new ArrayList<>(uses);
+            for (int u = 0; u < uses; u++) {
+                siteUses.add(SiteUse.builder().id(siteUseId++).sizeSqft(100 + random.nextInt(50000))
+                                    .useType(useTypes[random.nextInt(spread)]).build());
+            }
+            sites.add(Site.builder().id(s + 1).siteUses(siteUses).build());
+        }
+    }
+
+    @Benchmark
+    public void aggregateSites(Blackhole blackhole) {
+        for (Site site : sites) {
+            blackhole.consume(siteService.aggregateSites(site));
+        }
+    }
+}
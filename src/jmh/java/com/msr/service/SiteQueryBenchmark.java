@@ -0,0 +1,81 @@
+package com.msr.service;
+
+import com.msr.BuildingsApiApplication;
+import com.msr.data.SiteAggregateDao;
+import com.msr.model.Site;
+import com.msr.support.SyntheticSites;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SiteService#getAllSites()} and {@link SiteService#getSitesByState(String)} against an in-memory H2 holding
+ * the given number of synthetic sites (4 uses each on average), for each read path.
+ *
+ * Every parameter combination starts its own application context and database, so large runs need a large heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SiteQueryBenchmark {
+
+    private static final int USES_PER_SITE = 4;
+
+    @Param({"10000", "100000", "1000000"})
+    private int sites;
+
+    @Param({"JPA", "AGGREGATE", "DAO"})
+    private ReadPath readPath;
+
+    private ConfigurableApplicationContext context;
+
+    private SiteService siteService;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BuildingsApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark-" + sites + "-" + readPath,
+                            "sites.read-path=" + readPath,
+                            "logging.level.root=WARN")
+                .run();
+
+        SyntheticSites.seed(context.getBean(JdbcTemplate.class), sites, USES_PER_SITE, 42);
+        context.getBean(SiteAggregateDao.class).rebuildAll();
+        siteService = context.getBean(SiteService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Site> getAllSites() {
+        return siteService.getAllSites();
+    }
+
+    @Benchmark
+    public List<Site> getSitesByState() {
+        return siteService.getSitesByState("NV");
+    }
+}
@@ -0,0 +1,95 @@
+package com.msr.service;
+
+import com.msr.BuildingsApiApplication;
+import com.msr.data.SiteAggregateDao;
+import com.msr.data.SiteStatsDao;
+import com.msr.model.Site;
+import com.msr.model.SiteStats;
+import com.msr.support.SyntheticSites;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /sites/stats computed by a sequential and a parallel reduction over already loaded sites, end to end in memory
+ * (load, aggregate and reduce) and with GROUP BY queries, over the given number of synthetic sites.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SiteStatsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int sites;
+
+    private ConfigurableApplicationContext context;
+
+    private SiteStatsService siteStatsService;
+
+    private SiteService siteService;
+
+    private SiteStatsDao siteStatsDao;
+
+    private List<Site> loaded;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BuildingsApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:stats-benchmark-" + sites,
+                            "sites.read-path=AGGREGATE",
+                            "logging.level.root=WARN")
+                .run();
+
+        SyntheticSites.seed(context.getBean(JdbcTemplate.class), sites, 4, 42);
+        context.getBean(SiteAggregateDao.class).rebuildAll();
+        siteStatsService = context.getBean(SiteStatsService.class);
+        siteService = context.getBean(SiteService.class);
+        siteStatsDao = context.getBean(SiteStatsDao.class);
+        loaded = siteService.getAllSites();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SiteStats reduceSequential() {
+        return loaded.stream().collect(SiteStatsAccumulator.collector());
+    }
+
+    @Benchmark
+    public SiteStats reduceParallel() {
+        return loaded.parallelStream().collect(SiteStatsAccumulator.collector());
+    }
+
+    @Benchmark
+    public SiteStats memory() {
+        return siteStatsService.summarize(siteService.getAllSites());
+    }
+
+    @Benchmark
+    public SiteStats sql() {
+        return siteStatsDao.getStats();
+    }
+}
@@ -0,0 +1,35 @@
+package com.msr;
+
+import com.msr.model.AggregateConsistencyReport;
+import com.msr.service.SiteAggregateConsistencyChecker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint (/actuator/siteaggregates) to verify and repair the materialized site aggregates
+ */
+@Component
+@Endpoint(id = "siteaggregates")
+public class SiteAggregatesEndpoint {
+
+    private final SiteAggregateConsistencyChecker checker;
+
+    @Autowired
+    public SiteAggregatesEndpoint(SiteAggregateConsistencyChecker checker) {
+        this.checker = checker;
+    }
+
+    @ReadOperation
+    public AggregateConsistencyReport check() {
+        return checker.check();
+    }
+
+    @WriteOperation
+    public AggregateConsistencyReport repair() {
+        checker.repair();
+        return checker.check();
+    }
+}
@@ -0,0 +1,53 @@
+package com.msr;
+
+import io.swagger.annotations.ApiParam;
+import lombok.Data;
+
+/**
+ * Filters of GET /sites, bound from the query string by name, so each is declared once for the full and the sparse
+ * site lists.
+ */
+@Data
+public class SiteQuery {
+    private String state;
+
+    @ApiParam("Page size. Passing limit or cursor returns one page and a Link header to the next one.")
+    private Integer limit;
+
+    @ApiParam("The next cursor of the previous page.")
+    private String cursor;
+
+    /* Zipcode and city search, not combinable with paging */
+    @ApiParam("Zipcode, or zipcode prefix followed by *, e.g. 921*.")
+    private String zip;
+
+    @ApiParam("City, or city prefix followed by *, e.g. San*. Ignores case.")
+    private String city;
+
+    /* Filters on aggregated values, not combinable with paging or zip and city search */
+    @ApiParam("Smallest total size in square feet, inclusive.")
+    private Integer minSize;
+
+    @ApiParam("Largest total size in square feet, inclusive.")
+    private Integer maxSize;
+
+    @ApiParam("Primary use type name, e.g. Office. Ignores case.")
+    private String primaryType;
+
+    boolean paged() {
+        return limit != null || cursor != null;
+    }
+
+    boolean byPattern() {
+        return zip != null || city != null;
+    }
+
+    boolean bySize() {
+        return minSize != null || maxSize != null || primaryType != null;
+    }
+
+    /* Zip and city search, size filters and paging each exclude the others; state combines with all of them */
+    boolean combinable() {
+        return !(byPattern() && bySize() || paged() && (byPattern() || bySize()));
+    }
+}
@@ -0,0 +1,29 @@
+package com.msr;
+
+import com.msr.service.SiteSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/sitesearch) reporting the size of the full-text site search index
+ */
+@Component
+@Endpoint(id = "sitesearch")
+public class SiteSearchEndpoint {
+
+    private final SiteSearchService siteSearchService;
+
+    @Autowired
+    public SiteSearchEndpoint(SiteSearchService siteSearchService) {
+        this.siteSearchService = siteSearchService;
+    }
+
+    @ReadOperation
+    public Map<String, Long> footprint() {
+        return siteSearchService.footprint();
+    }
+}
@@ -0,0 +1,32 @@
+package com.msr;
+
+import com.msr.data.SiteSnapshot;
+import com.msr.service.SiteSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/sitesnapshot) reporting the memory footprint of the in-memory site snapshot
+ */
+@Component
+@Endpoint(id = "sitesnapshot")
+public class SiteSnapshotEndpoint {
+
+    private final SiteSnapshotService siteSnapshotService;
+
+    @Autowired
+    public SiteSnapshotEndpoint(SiteSnapshotService siteSnapshotService) {
+        this.siteSnapshotService = siteSnapshotService;
+    }
+
+    @ReadOperation
+    public Map<String, Long> footprint() {
+        SiteSnapshot snapshot = siteSnapshotService.peek();
+        return snapshot == null ? Collections.emptyMap() : snapshot.footprint();
+    }
+}
@@ -1,23 +1,70 @@
 package com.msr;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.msr.config.SitesExecutorConfig;
+import com.msr.model.BulkIngestReport;
 import com.msr.model.Site;
+import com.msr.model.SiteBatch;
+import com.msr.model.SiteField;
+import com.msr.model.SitePage;
+import com.msr.model.SiteStats;
+import com.msr.service.DatasetVersion;
+import com.msr.service.SiteExportService;
+import com.msr.service.SiteSearchService;
 import com.msr.service.SiteService;
+import com.msr.service.SiteStatsService;
+import com.msr.service.SiteUseIngestService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Respond to site requests
+ *
+ * Handlers that read sites run on the bounded sites executor, not on the server's worker threads. When it is
+ * saturated a request is rejected right away with 503 and Retry-After.
  */
 @RestController
 @RequestMapping("/sites")
@@ -29,9 +76,68 @@ public class SitesController {
     static final String NO_SAMPLE_PARAM_PROVIDED = SAMPLE_RESPONSE_BASE + "No request param was provided.";
     static final String SAMPLE_EXCEPTION_MESSAGE = SAMPLE_RESPONSE_BASE + "An expected error was thrown.";
 
+    /* Binary formats of the streaming export, Smile as consecutive root values and CBOR as an RFC 8742 sequence */
+    static final String SMILE_VALUE = "application/x-jackson-smile";
+    static final String CBOR_SEQ_VALUE = "application/cbor-seq";
+    private static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    private static final MediaType CBOR_SEQ = MediaType.parseMediaType(CBOR_SEQ_VALUE);
+
+    /* Formats of the streaming export, in order of preference when a wildcard is accepted */
+    private static final List<MediaType> STREAM_FORMATS = Arrays.asList(MediaType.APPLICATION_NDJSON, SMILE, CBOR_SEQ);
+
+    /* Sparse fieldsets */
+    static final String FIELDS_PARAM = "fields";
+    private static final String FIELDS_DESCRIPTION = "Comma separated fields to return, e.g. id,name,state. "
+            + "Without total_size and primary_type no site use is read.";
+
+    /* Keyset paging */
+    static final String CURSOR_PARAM = "cursor";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private SiteService siteService;
 
+    @Autowired
+    private SiteExportService siteExportService;
+
+    @Autowired
+    private SiteStatsService siteStatsService;
+
+    @Autowired
+    private SiteUseIngestService siteUseIngestService;
+
+    @Autowired
+    private SiteSearchService siteSearchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /* Built from Boot's customized builder, like the JSON mapper and the Smile and CBOR converters */
+    private ObjectMapper smileMapper;
+
+    private ObjectMapper cborMapper;
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Autowired
+    @Qualifier(SitesExecutorConfig.SITES_EXECUTOR)
+    private Executor sitesExecutor;
+
+    @Value("${sites.executor.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    /* Async timeout of the streaming export only, in ms, -1 for none */
+    @Value("${sites.export.request-timeout:-1}")
+    private long exportTimeout;
+
+    @Autowired
+    void setObjectMapperBuilder(final Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+    }
+
     /**
      * Used simply to check if this controller is responding to requests.
      * Has no function other than echoing.
@@ -58,32 +164,349 @@ public class SitesController {
 
     @ApiOperation("Returns a sample message for baseline controller testing.")
     @GetMapping("")
-    public ResponseEntity<List<Site>> getAllSites(@RequestParam(value = "state", required = false) final String state) {
+    public CompletableFuture<ResponseEntity<List<Site>>> getAllSites(final SiteQuery query,
+                                                                     final WebRequest webRequest) {
+        return findSites(query, Function.identity(),
+                         state -> state == null ? siteService.getAllSites() : siteService.getSitesByState(state),
+                         webRequest);
+    }
+
+    /**
+     * Same as {@link #getAllSites}, but each site only has the selected fields. Without total_size and primary_type
+     * nothing is aggregated and only the selected columns are read, except for pages and searches, which are
+     * projected after loading.
+     */
+    @ApiOperation("Returns only the selected fields of all sites, optionally filtered by state.")
+    @GetMapping(value = "", params = FIELDS_PARAM)
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> getSiteFields(
+            @ApiParam(FIELDS_DESCRIPTION) @RequestParam(FIELDS_PARAM) final String fields,
+            final SiteQuery query,
+            final WebRequest webRequest) {
+        Set<SiteField> selected;
         try {
-            List<Site> sites;
+            selected = SiteField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return findSites(query, sites -> SiteService.project(sites, selected),
+                         state -> siteService.getSiteFields(state, selected), webRequest);
+    }
+
+    /**
+     * Runs a query of GET /sites for either list handler.
+     *
+     * @param project  Turns loaded sites into the response elements.
+     * @param byState  Loads the response elements of all sites or those of one state when no other filter is given.
+     */
+    private <T> CompletableFuture<ResponseEntity<List<T>>> findSites(final SiteQuery query,
+                                                                     final Function<List<Site>, List<T>> project,
+                                                                     final Function<String, List<T>> byState,
+                                                                     final WebRequest webRequest) {
+        // the request is only bound to this thread
+        UriComponentsBuilder currentUri = ServletUriComponentsBuilder.fromCurrentRequest();
+        return conditionalResponse(webRequest, datasetVersion.etag(), etag -> {
+            if (!query.combinable()) {
+                return ResponseEntity.badRequest().build();
+            }
+            String state = query.getState();
+            if (query.paged()) {
+                return getSitesPage(state, query.getCursor(), query.getLimit(), etag, currentUri, project);
+            }
+
+            List<T> sites;
 
-            if (state == null) {
-                sites = siteService.getAllSites();
+            if (query.byPattern()) {
+                sites = project.apply(siteService.getSitesByPattern(query.getZip(), query.getCity(), state));
+            } else if (query.bySize()) {
+                sites = project.apply(siteService.getSitesBySize(query.getMinSize(), query.getMaxSize(),
+                                                                 query.getPrimaryType(), state));
             } else {
-                sites = siteService.getSitesByState(state);
+                sites = byState.apply(state);
             }
 
-            return sites.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(sites);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            return tagged(etag, sites);
+        });
+    }
+
+    private <T> ResponseEntity<List<T>> getSitesPage(final String state, final String cursor, final Integer limit,
+                                                     final String etag, final UriComponentsBuilder currentUri,
+                                                     final Function<List<Site>, List<T>> body) {
+        SitePage page = siteService.getSitesPage(state, cursor, limit);
+
+        if (page.getSites().isEmpty()) {
+            return tagged(etag, null);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT);
+        if (page.getNext() != null) {
+            String nextUrl = currentUri.replaceQueryParam(CURSOR_PARAM, page.getNext()).toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextUrl + ">; rel=\"next\"")
+                    .header(NEXT_CURSOR_HEADER, page.getNext());
+        }
+        return response.body(body.apply(page.getSites()));
+    }
+
+    /**
+     * Streams all sites, optionally filtered by state, as newline delimited JSON, or as a sequence of Smile or CBOR
+     * values when one of those is accepted. Each site is written as soon as it is aggregated, so the export never
+     * holds the whole list in memory. Long exports are not cut off by the async request timeout of other handlers:
+     * the export sets its own, sites.export.request-timeout, once it runs.
+     */
+    @ApiOperation("Streams all sites as newline delimited JSON, or as a Smile or CBOR sequence.")
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, SMILE_VALUE, CBOR_SEQ_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamSites(@RequestParam(value = "state", required = false)
+                                                             final String state,
+                                                             final HttpServletRequest request) {
+        MediaType format = negotiatedFormat(request);
+        StreamingResponseBody body;
+        if (MediaType.APPLICATION_NDJSON.equals(format)) {
+            ObjectWriter writer = objectMapper.writerFor(Site.class);
+            body = out -> export(state, site -> {
+                out.write(writer.writeValueAsBytes(site));
+                out.write('\n');
+            });
+        } else {
+            ObjectWriter writer = (SMILE.equals(format) ? smileMapper : cborMapper)
+                    .writerFor(Site.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            body = out -> {
+                try (SequenceWriter sequence = writer.writeValues(out)) {
+                    export(state, sequence::write);
+                }
+            };
         }
+        StreamingResponseBody export = body;
+        return ResponseEntity.ok().contentType(format).varyBy(HttpHeaders.ACCEPT).body(out -> {
+            // runs after async processing started, so the request has its async context
+            request.getAsyncContext().setTimeout(exportTimeout);
+            export.writeTo(out);
+        });
+    }
+
+    /**
+     * @return The stream format the Accept header prefers by quality and specificity, skipping formats refused with
+     * q=0. NDJSON when any format is accepted or the header cannot be parsed.
+     */
+    private static MediaType negotiatedFormat(final HttpServletRequest request) {
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(Collections.list(request.getHeaders(HttpHeaders.ACCEPT)));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_NDJSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            for (MediaType format : STREAM_FORMATS) {
+                if (type.includes(format) && accepted.stream().noneMatch(
+                        refused -> refused.getQualityValue() == 0 && refused.includes(format))) {
+                    return format;
+                }
+            }
+        }
+        return MediaType.APPLICATION_NDJSON;
+    }
+
+    private void export(final String state, final SiteWriter writer) throws IOException {
+        try {
+            siteExportService.exportSites(state, site -> {
+                try {
+                    writer.write(site);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SiteWriter {
+        void write(Site site) throws IOException;
+    }
+
+    /**
+     * Full-text search over the words of site names, addresses and cities, e.g. q=petco park. Sites matching more and
+     * rarer words, and words in their name, come first.
+     *
+     * @return The best matching sites, best first, 400 for a query without words or a limit out of range.
+     */
+    @ApiOperation("Returns the sites whose name, address or city best match the words of the query.")
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<List<Site>>> searchSites(
+            @ApiParam("Words to look for, e.g. petco park. Ignores case and punctuation.")
+            @RequestParam("q") final String query,
+            @ApiParam("Number of results, at most sites.search.max-limit.")
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            final WebRequest webRequest) {
+        return conditional(webRequest, datasetVersion.etag(), () -> siteSearchService.search(query, limit));
+    }
+
+    /**
+     * The largest sites by total size, e.g. the 50 biggest stadiums in CA, read off size ordered indexes so the cost
+     * grows with n and not with the number of sites.
+     *
+     * @return At most n sites, largest first, 400 when n is out of range.
+     */
+    @ApiOperation("Returns the largest sites by total size, optionally in one state and of one primary use type.")
+    @GetMapping("/top")
+    public CompletableFuture<ResponseEntity<List<Site>>> getTopSites(
+            @ApiParam("Number of sites, at most sites.top.max-n.")
+            @RequestParam(value = "n", required = false) final Integer n,
+            @RequestParam(value = "state", required = false) final String state,
+            @ApiParam("Primary use type name, e.g. Stadium. Ignores case.")
+            @RequestParam(value = "primaryType", required = false) final String primaryType,
+            final WebRequest webRequest) {
+        return conditional(webRequest, datasetVersion.etag(), () -> siteService.getTopSites(n, state, primaryType));
+    }
+
+    @ApiOperation("Returns site counts and total square footage by state, city and primary use type, and a size histogram.")
+    @GetMapping("/stats")
+    public CompletableFuture<ResponseEntity<SiteStats>> getStats(final WebRequest webRequest) {
+        return conditional(webRequest, datasetVersion.etag(), siteStatsService::getStats);
+    }
+
+    /**
+     * Looks up many sites in one call instead of one GET /sites/{id} per site.
+     *
+     * @return The sites found in request order and the ids that do not exist, 400 for more than sites.batch.max-ids ids.
+     */
+    @ApiOperation("Returns the sites with the given ids and the ids that were not found.")
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<SiteBatch>> getSitesByIds(@ApiParam("JSON array of site ids.")
+                                                                      @RequestBody final List<Integer> ids) {
+        return async(() -> {
+            try {
+                return ResponseEntity.ok(siteService.getSitesByIds(ids));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+        });
+    }
+
+    /**
+     * Inserts or replaces site uses sent as newline delimited JSON, one site use per line with id, site_id,
+     * description, size_sqft and use_type_id. The upload is read as it arrives and written in batches, on the
+     * request thread so that the database paces the client.
+     *
+     * @return Accepted and rejected line counts and the first errors with their line numbers.
+     */
+    @ApiOperation("Inserts or replaces site uses from newline delimited JSON and returns a summary.")
+    @PostMapping(value = "/uses:bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkIngestReport> ingestSiteUses(final InputStream body) throws IOException {
+        return ResponseEntity.ok(siteUseIngestService.ingest(body));
     }
 
     @ApiOperation("Returns a sample message for baseline controller testing.")
     @GetMapping("/{id}")
-    public ResponseEntity<Site> getSiteById(@PathVariable final int id) {
+    public CompletableFuture<ResponseEntity<Site>> getSiteById(@PathVariable final int id,
+                                                               final WebRequest webRequest) {
+        return conditional(webRequest, datasetVersion.etag(id), () -> siteService.getSiteById(id).orElse(null));
+    }
+
+    @ApiOperation("Returns only the selected fields of a site.")
+    @GetMapping(value = "/{id}", params = FIELDS_PARAM)
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getSiteFieldsById(
+            @PathVariable final int id,
+            @ApiParam(FIELDS_DESCRIPTION) @RequestParam(FIELDS_PARAM) final String fields,
+            final WebRequest webRequest) {
+        Set<SiteField> selected;
         try {
-            return siteService.getSiteById(id)
-                              .map(ResponseEntity::ok)
-                              .orElse(ResponseEntity.noContent().build());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            selected = SiteField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
+        return conditional(webRequest, datasetVersion.etag(id),
+                           () -> siteService.getSiteFieldsById(id, selected).orElse(null));
+    }
+
+    /**
+     * Sheds load when the sites executor has no thread and no queue slot left.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> handleRejected(final RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                             .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                             .build();
+    }
+
+    private <T> CompletableFuture<T> async(final Supplier<T> handler) {
+        return CompletableFuture.supplyAsync(handler, sitesExecutor);
+    }
+
+    /**
+     * A read tagged with the dataset tag: 200 with the body, 204 without one. See
+     * {@link #conditionalResponse(WebRequest, String, Function)} for 304, 400, 500 and 503.
+     */
+    private <T> CompletableFuture<ResponseEntity<T>> conditional(final WebRequest webRequest, final String datasetTag,
+                                                                 final Supplier<T> body) {
+        return conditionalResponse(webRequest, datasetTag, etag -> tagged(etag, body.get()));
+    }
+
+    /**
+     * Answers 304 on the request thread when the client's copy has the current tag of the negotiated
+     * representation, else builds the response for that tag on the sites executor. IllegalArgumentException is 400,
+     * other failures 500, and a full executor 503 through {@link #handleRejected}. The tag is taken before loading,
+     * so a concurrent write can only make it older than the body.
+     */
+    private <T> CompletableFuture<ResponseEntity<T>> conditionalResponse(
+            final WebRequest webRequest, final String datasetTag, final Function<String, ResponseEntity<T>> response) {
+        String etag = representationTag(datasetTag, webRequest);
+        if (webRequest.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(notModified(etag));
+        }
+        return async(() -> {
+            try {
+                return response.apply(etag);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+        });
+    }
+
+    /* 200 with the body, or 204 when there is none or it is an empty list, both with the tag */
+    private static <T> ResponseEntity<T> tagged(final String etag, final T body) {
+        boolean empty = body == null || body instanceof Collection && ((Collection<?>) body).isEmpty();
+        return empty ? ResponseEntity.noContent().eTag(etag).varyBy(HttpHeaders.ACCEPT).build()
+                     : ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(body);
+    }
+
+    /**
+     * JSON, Smile and CBOR bodies of one resource are different representations, so they need different strong
+     * ETags: JSON, the default, keeps the dataset tag and the binary formats append their name. Picks the format the
+     * message converters will, the first accepted one in order of specificity and quality.
+     */
+    private static String representationTag(final String etag, final WebRequest webRequest) {
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(webRequest.getHeader(HttpHeaders.ACCEPT));
+        } catch (InvalidMediaTypeException e) {
+            return etag;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.includes(MediaType.APPLICATION_JSON)) {
+                return etag;
+            }
+            if (type.includes(SMILE) || type.includes(CBOR)) {
+                String format = type.includes(SMILE) ? "smile" : "cbor";
+                return etag.substring(0, etag.length() - 1) + "+" + format + "\"";
+            }
+        }
+        return etag;
+    }
+
+    private static <T> ResponseEntity<T> notModified(final String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
     }
 
-}
\ No newline at end of file
+}
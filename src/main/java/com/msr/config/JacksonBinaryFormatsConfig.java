@@ -0,0 +1,43 @@
+package com.msr.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Gives the Smile and CBOR converters mappers from Boot's customized {@link Jackson2ObjectMapperBuilder}, so
+ * spring.jackson.* settings apply to every format and a site has the same fields in JSON, Smile and CBOR. Spring MVC
+ * builds them from a plain builder otherwise.
+ */
+@Configuration
+public class JacksonBinaryFormatsConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> builders;
+
+    @Autowired
+    public JacksonBinaryFormatsConfig(ObjectProvider<Jackson2ObjectMapperBuilder> builders) {
+        this.builders = builders;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2SmileHttpMessageConverter) {
+                ((MappingJackson2SmileHttpMessageConverter) converter).setObjectMapper(
+                        builders.getObject().factory(new SmileFactory()).build());
+            } else if (converter instanceof MappingJackson2CborHttpMessageConverter) {
+                ((MappingJackson2CborHttpMessageConverter) converter).setObjectMapper(
+                        builders.getObject().factory(new CBORFactory()).build());
+            }
+        }
+    }
+}
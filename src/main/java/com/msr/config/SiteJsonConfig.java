@@ -0,0 +1,34 @@
+package com.msr.config;
+
+import com.msr.service.SiteJsonCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Puts the cached site JSON in front of Jackson for site responses.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sites.json-cache.enabled", matchIfMissing = true)
+public class SiteJsonConfig implements WebMvcConfigurer {
+
+    private final SiteJsonCache siteJsonCache;
+
+    private final boolean gzip;
+
+    @Autowired
+    public SiteJsonConfig(SiteJsonCache siteJsonCache, @Value("${sites.json-cache.gzip:false}") boolean gzip) {
+        this.siteJsonCache = siteJsonCache;
+        this.gzip = gzip;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new SiteJsonHttpMessageConverter(siteJsonCache, gzip));
+    }
+}
@@ -0,0 +1,165 @@
+package com.msr.config;
+
+import com.msr.model.Site;
+import com.msr.service.SiteJsonCache;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes a {@link Site} or a list of sites as JSON from the {@link SiteJsonCache}, so an unchanged site is not
+ * serialized again. A list is written as its cached elements between brackets.
+ *
+ * The ETag of the response, taken before the sites were loaded, tells the cache whether the bytes may be stored.
+ * Single sites are sent gzipped to clients accepting it, by the quality values of Accept-Encoding, when gzip is
+ * enabled. Everything else, including reading sites, is left to Jackson.
+ */
+public class SiteJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private static final String GZIP = "gzip";
+
+    private final SiteJsonCache siteJsonCache;
+
+    private final boolean gzip;
+
+    public SiteJsonHttpMessageConverter(SiteJsonCache siteJsonCache, boolean gzip) {
+        super(MediaType.APPLICATION_JSON);
+        this.siteJsonCache = siteJsonCache;
+        this.gzip = gzip;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Site.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (type == null) {
+            return canWrite(clazz, mediaType);
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        Class<?> raw = resolved.resolve(Object.class);
+        boolean sites = Site.class.isAssignableFrom(raw)
+                || List.class.isAssignableFrom(raw) && resolved.resolveGeneric(0) == Site.class;
+        return sites && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        String loadedAt = outputMessage.getHeaders().getETag();
+        if (value instanceof Site) {
+            Site site = (Site) value;
+            byte[] body;
+            if (gzip) {
+                // headers are sent with the first byte of the body
+                outputMessage.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                if (acceptsGzip()) {
+                    outputMessage.getHeaders().set(HttpHeaders.CONTENT_ENCODING, GZIP);
+                    body = siteJsonCache.gzip(site, loadedAt);
+                } else {
+                    body = siteJsonCache.json(site, loadedAt);
+                }
+            } else {
+                body = siteJsonCache.json(site, loadedAt);
+            }
+            outputMessage.getBody().write(body);
+            return;
+        }
+
+        OutputStream out = outputMessage.getBody();
+        out.write('[');
+        boolean first = true;
+        for (Object site : (Collection<?>) value) {
+            if (!first) {
+                out.write(',');
+            }
+            out.write(siteJsonCache.json((Site) site, loadedAt));
+            first = false;
+        }
+        out.write(']');
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Sites are only written by this converter", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Sites are only written by this converter", inputMessage);
+    }
+
+    private static boolean acceptsGzip() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return false;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        return acceptsGzip(Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING)));
+    }
+
+    /**
+     * @param acceptEncodings Values of the Accept-Encoding headers of a request.
+     * @return Whether gzip is named with a quality above 0, or, when it is not named, * is. With gzip;q=0 the
+     *         identity encoding is sent.
+     */
+    static boolean acceptsGzip(List<String> acceptEncodings) {
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String header : acceptEncodings) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                double quality = quality(parts);
+                if (name.equals(GZIP) || name.equals("x-" + GZIP)) {
+                    gzipQuality = quality;
+                } else if (name.equals("*")) {
+                    anyQuality = quality;
+                }
+            }
+        }
+        return gzipQuality != null ? gzipQuality > 0 : anyQuality != null && anyQuality > 0;
+    }
+
+    /* The q parameter of a coding, 1 without one and 0 when it cannot be read */
+    private static double quality(String[] codingParts) {
+        for (int i = 1; i < codingParts.length; i++) {
+            String parameter = codingParts[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
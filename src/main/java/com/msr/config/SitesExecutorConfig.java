@@ -0,0 +1,73 @@
+package com.msr.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Collections;
+
+/**
+ * The bounded executor SitesController runs its handlers on, and the executor that keeps the in-memory read models
+ * current after writes.
+ *
+ * A fixed number of threads and a bounded queue act as a bulkhead: once both are full, submissions are rejected
+ * immediately (the default abort policy) instead of queueing without limit. Pool and queue are exported as
+ * executor.* meters tagged name=sitesExecutor.
+ */
+@Configuration
+public class SitesExecutorConfig {
+
+    public static final String SITES_EXECUTOR = "sitesExecutor";
+
+    public static final String READ_MODELS_EXECUTOR = "readModelsExecutor";
+
+    @Bean(SITES_EXECUTOR)
+    public ThreadPoolTaskExecutor sitesExecutor(@Value("${sites.executor.pool-size:16}") int poolSize,
+                                                @Value("${sites.executor.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sites-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * One thread, so the updates of a read model never run concurrently and apply in order. Read models coalesce
+     * changes into one pending task each, so the queue stays short however many writes arrive.
+     */
+    @Bean(READ_MODELS_EXECUTOR)
+    public ThreadPoolTaskExecutor readModelsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("read-models-");
+        return executor;
+    }
+
+    @Bean
+    public MeterBinder sitesExecutorMetrics(@Qualifier(SITES_EXECUTOR) ThreadPoolTaskExecutor sitesExecutor) {
+        return registry -> new ExecutorServiceMetrics(sitesExecutor.getThreadPoolExecutor(), SITES_EXECUTOR,
+                                                      Collections.emptyList()).bindTo(registry);
+    }
+
+    /**
+     * Declaring any Executor switches off Boot's default task executor, which Spring MVC uses for streaming
+     * responses, so it is declared here the way Boot would.
+     */
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
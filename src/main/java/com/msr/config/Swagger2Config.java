@@ -1,7 +1,9 @@
 package com.msr.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.WebRequest;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -11,8 +13,14 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+/**
+ * Scans the controllers at startup and serves the resulting spec at /v2/api-docs. Switched off with
+ * sites.swagger.runtime-scan.enabled=false, as in the prod profile, where the spec exported at build time is served
+ * from /api-docs/swagger.json instead.
+ */
 @Configuration
 @EnableSwagger2
+@ConditionalOnProperty(name = "sites.swagger.runtime-scan.enabled", matchIfMissing = true)
 public class Swagger2Config {
 
     @Bean
@@ -20,7 +28,10 @@ public class Swagger2Config {
         return new Docket(DocumentationType.SWAGGER_2).select()
                 .apis(RequestHandlerSelectors.basePackage("com.msr"))
                 .paths(PathSelectors.any())
-                .build().apiInfo(apiEndPointsInfo());
+                .build()
+                // handlers take it for conditional requests only; it is no query parameter
+                .ignoredParameterTypes(WebRequest.class)
+                .apiInfo(apiEndPointsInfo());
     }
 
     private ApiInfo apiEndPointsInfo() {
@@ -0,0 +1,55 @@
+package com.msr.data;
+
+import com.msr.model.Site;
+import com.msr.model.SiteUseRecord;
+import com.msr.model.UseType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Batched JDBC upserts for bulk loading. Each call sends its rows as a single JDBC batch; callers choose the batch
+ * size and the transaction boundaries.
+ */
+@Repository
+public class BulkSiteWriter {
+
+    private static final String UPSERT_USE_TYPE = "MERGE INTO use_type (id, name) KEY (id) VALUES (?, ?)";
+
+    private static final String UPSERT_SITE = "MERGE INTO site (id, name, address, city, state, zipcode) KEY (id) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SITE_USE = "MERGE INTO site_use "
+            + "(id, description, size_sqft, site_id, use_type_id) KEY (id) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BulkSiteWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void upsertUseTypes(List<UseType> useTypes) {
+        jdbcTemplate.batchUpdate(UPSERT_USE_TYPE, useTypes.stream()
+                                                          .map(t -> new Object[]{t.getId(), t.getName()})
+                                                          .collect(Collectors.toList()));
+    }
+
+    public void upsertSites(List<Site> sites) {
+        jdbcTemplate.batchUpdate(UPSERT_SITE, sites.stream()
+                                                   .map(s -> new Object[]{s.getId(), s.getName(), s.getAddress(),
+                                                                          s.getCity(), s.getState(), s.getZipcode()})
+                                                   .collect(Collectors.toList()));
+    }
+
+    public void upsertSiteUses(List<SiteUseRecord> siteUses) {
+        jdbcTemplate.batchUpdate(UPSERT_SITE_USE, siteUses.stream()
+                                                          .map(u -> new Object[]{u.getId(), u.getDescription(),
+                                                                                 u.getSizeSqft(), u.getSiteId(),
+                                                                                 u.getUseTypeId()})
+                                                          .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.msr.data;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens the database of the persistent profile, a file backed H2 that survives restarts.
+ *
+ * Boot's script initialization is switched off there, because schema.sql drops every table. Instead the scripts
+ * run only when the file has no site table yet, so a restarted instance serves the data it had without reseeding.
+ * Without sites.store.persistent the in-memory database has already been seeded by Boot and this does nothing.
+ *
+ * The store is opened as soon as this bean is initialized, whatever else is configured. Beans reading the database
+ * while the context starts depend on it by {@link #BEAN_NAME}.
+ */
+@Log4j2
+@Component(PersistentStore.BEAN_NAME)
+public class PersistentStore implements InitializingBean {
+
+    public static final String BEAN_NAME = "persistentStore";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean persistent;
+
+    private final Resource schema;
+
+    private final Resource data;
+
+    private volatile boolean reopened;
+
+    @Autowired
+    public PersistentStore(JdbcTemplate jdbcTemplate,
+                           @Value("${sites.store.persistent:false}") boolean persistent,
+                           @Value("classpath:schema.sql") Resource schema,
+                           @Value("classpath:data.sql") Resource data) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.persistent = persistent;
+        this.schema = schema;
+        this.data = data;
+    }
+
+    /**
+     * Creates and seeds the store when it is empty.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!persistent) {
+            return;
+        }
+        Integer tables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'SITE'",
+                Integer.class);
+        if (tables != null && tables > 0) {
+            reopened = true;
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        new ResourceDatabasePopulator(schema, data).execute(jdbcTemplate.getDataSource());
+        log.info("Created and seeded the persistent store in {} ms", System.currentTimeMillis() - start);
+    }
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * @return Whether this instance started from data left by a previous run, whose site_aggregate rows are kept up
+     *         to date by every write.
+     */
+    public boolean isReopened() {
+        return reopened;
+    }
+}
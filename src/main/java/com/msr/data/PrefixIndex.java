@@ -0,0 +1,125 @@
+package com.msr.data;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Sorted array index over one string column of a {@link SiteSnapshot}, answering prefix queries.
+ *
+ * Every distinct key is stored once, in order, with the range of its rows in one shared row array. The keys with a
+ * prefix are a contiguous range found by two binary searches, and their rows are a contiguous slice of the row array,
+ * so a lookup costs O(log keys) plus the number of matching rows.
+ */
+final class PrefixIndex {
+
+    private final UnaryOperator<String> normalizer;
+
+    private final String[] keys;
+
+    /* Rows of keys[k] are rows[keyStart[k]] .. rows[keyStart[k + 1] - 1], ordered by id */
+    private final int[] keyStart;
+
+    private final int[] rows;
+
+    /**
+     * @param column     Value of each row.
+     * @param ids        Id of each row, orders the rows of a key.
+     * @param normalizer Applied to values and prefixes alike, e.g. to ignore case.
+     */
+    PrefixIndex(String[] column, int[] ids, UnaryOperator<String> normalizer) {
+        this.normalizer = normalizer;
+        String[] normalized = new String[column.length];
+        for (int row = 0; row < column.length; row++) {
+            normalized[row] = normalizer.apply(column[row]);
+        }
+
+        rows = IntStream.range(0, column.length).boxed()
+                        .sorted(Comparator.<Integer, String>comparing(row -> normalized[row])
+                                          .thenComparingInt(row -> ids[row]))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+
+        int distinct = 0;
+        String[] distinctKeys = new String[rows.length];
+        int[] starts = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++) {
+            String key = normalized[rows[i]];
+            if (distinct == 0 || !distinctKeys[distinct - 1].equals(key)) {
+                distinctKeys[distinct] = key;
+                starts[distinct] = i;
+                distinct++;
+            }
+        }
+        starts[distinct] = rows.length;
+        keys = Arrays.copyOf(distinctKeys, distinct);
+        keyStart = Arrays.copyOf(starts, distinct + 1);
+    }
+
+    /**
+     * @param pattern A value, or a prefix followed by a single trailing *.
+     * @return The slice [from, to) of {@link #row(int)} positions whose keys match the pattern.
+     * @throws IllegalArgumentException When * appears anywhere but at the end.
+     */
+    int[] range(String pattern) {
+        if (isPrefix(pattern)) {
+            String prefix = normalizer.apply(pattern.substring(0, pattern.length() - 1));
+            int first = lowerBound(prefix);
+            // every key starting with the prefix sorts below the prefix followed by the largest char
+            int last = lowerBound(prefix + Character.MAX_VALUE);
+            return new int[]{keyStart[first], keyStart[last]};
+        }
+        int key = Arrays.binarySearch(keys, normalizer.apply(pattern));
+        return key < 0 ? new int[]{0, 0} : new int[]{keyStart[key], keyStart[key + 1]};
+    }
+
+    int row(int position) {
+        return rows[position];
+    }
+
+    /**
+     * @return A test of single values against the pattern, for rows found through another index.
+     */
+    Predicate<String> matcher(String pattern) {
+        if (isPrefix(pattern)) {
+            String prefix = normalizer.apply(pattern.substring(0, pattern.length() - 1));
+            return value -> normalizer.apply(value).startsWith(prefix);
+        }
+        String normalized = normalizer.apply(pattern);
+        return value -> normalizer.apply(value).equals(normalized);
+    }
+
+    static boolean isPrefix(String pattern) {
+        int wildcard = pattern.indexOf('*');
+        if (wildcard >= 0 && wildcard != pattern.length() - 1) {
+            throw new IllegalArgumentException("* is only allowed at the end: " + pattern);
+        }
+        return wildcard >= 0;
+    }
+
+    /* First key not below the given one */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    long bytes(int arrayHeaderBytes, int referenceBytes, int stringOverheadBytes) {
+        long bytes = 3L * arrayHeaderBytes + (long) keys.length * referenceBytes
+                + (long) (keyStart.length + rows.length) * Integer.BYTES;
+        for (String key : keys) {
+            bytes += stringOverheadBytes + key.length();
+        }
+        return bytes;
+    }
+}
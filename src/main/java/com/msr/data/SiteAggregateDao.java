@@ -0,0 +1,119 @@
+package com.msr.data;
+
+import com.google.common.collect.Iterables;
+import com.msr.model.SiteAggregate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC access to the materialized site_aggregate table.
+ *
+ * The primary type of a site is the use type with the largest summed size. Ties go to the type whose last
+ * site_use (by id) comes first, which is the type SiteService reaches first when walking uses in id order.
+ */
+@Repository
+public class SiteAggregateDao {
+
+    /* Recomputes aggregates from site_use for every site matching the given filter. */
+    private static final String RECOMPUTE = "SELECT s.id AS site_id, COALESCE(tot.total_size, 0) AS total_size, "
+            + "p.use_type_id AS primary_type_id "
+            + "FROM site s "
+            + "LEFT JOIN (SELECT site_id, SUM(size_sqft) AS total_size FROM site_use %1$s GROUP BY site_id) tot "
+            + "ON tot.site_id = s.id "
+            + "LEFT JOIN (SELECT site_id, use_type_id, type_size, "
+            + "ROW_NUMBER() OVER (PARTITION BY site_id ORDER BY type_size DESC, last_use_id) AS rn "
+            + "FROM (SELECT site_id, use_type_id, SUM(size_sqft) AS type_size, MAX(id) AS last_use_id "
+            + "FROM site_use %1$s GROUP BY site_id, use_type_id) g) p "
+            + "ON p.site_id = s.id AND p.rn = 1 AND p.type_size > 0 "
+            + "%2$s";
+
+    private static final String ALL_SITES = String.format(RECOMPUTE, "", "");
+
+    private static final String SELECTED_SITES = String.format(RECOMPUTE, "WHERE site_id IN (:siteIds)",
+                                                               "WHERE s.id IN (:siteIds)");
+
+    private static final String MERGE_PREFIX = "MERGE INTO site_aggregate (site_id, total_size, primary_type_id) "
+            + "KEY (site_id) ";
+
+    private static final String SELECT = "SELECT site_id, total_size, primary_type_id FROM site_aggregate";
+
+    /* Keeps IN lists well below driver and planner limits. */
+    private static final int MAX_IN_LIST = 1000;
+
+    private static final RowMapper<SiteAggregate> ROW_MAPPER = (rs, rowNum) -> SiteAggregate.builder()
+            .siteId(rs.getInt("site_id"))
+            .totalSize(rs.getInt("total_size"))
+            .primaryTypeId((Integer) rs.getObject("primary_type_id"))
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SiteAggregateDao(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<SiteAggregate> findBySiteId(int siteId) {
+        List<SiteAggregate> aggregates = jdbcTemplate.query(SELECT + " WHERE site_id = :siteId",
+                                                            new MapSqlParameterSource("siteId", siteId), ROW_MAPPER);
+        return aggregates.stream().findFirst();
+    }
+
+    public Map<Integer, SiteAggregate> findBySiteIds(Collection<Integer> siteIds) {
+        Map<Integer, SiteAggregate> aggregates = new HashMap<>();
+        for (List<Integer> chunk : Iterables.partition(siteIds, MAX_IN_LIST)) {
+            jdbcTemplate.query(SELECT + " WHERE site_id IN (:siteIds)", new MapSqlParameterSource("siteIds", chunk),
+                               ROW_MAPPER).forEach(a -> aggregates.put(a.getSiteId(), a));
+        }
+        return aggregates;
+    }
+
+    public List<SiteAggregate> findAll() {
+        return jdbcTemplate.query(SELECT + " ORDER BY site_id", ROW_MAPPER);
+    }
+
+    public List<SiteAggregate> findByState(String state) {
+        return jdbcTemplate.query("SELECT a.site_id, a.total_size, a.primary_type_id FROM site_aggregate a "
+                                          + "JOIN site s ON s.id = a.site_id WHERE s.state = :state",
+                                  new MapSqlParameterSource("state", state), ROW_MAPPER);
+    }
+
+    /**
+     * Recomputes the aggregates of every site from site_use without touching the stored rows.
+     */
+    public List<SiteAggregate> recomputeAll() {
+        return jdbcTemplate.query(ALL_SITES + " ORDER BY s.id", ROW_MAPPER);
+    }
+
+    /**
+     * Recomputes and stores the aggregates of the given sites. Only their own site_use rows are read.
+     */
+    public void refresh(Collection<Integer> siteIds) {
+        for (List<Integer> chunk : Iterables.partition(siteIds, MAX_IN_LIST)) {
+            jdbcTemplate.update(MERGE_PREFIX + SELECTED_SITES, new MapSqlParameterSource("siteIds", chunk));
+        }
+    }
+
+    public void refresh(int siteId) {
+        refresh(Collections.singleton(siteId));
+    }
+
+    /**
+     * Replaces all stored aggregates with a full recompute.
+     */
+    public void rebuildAll() {
+        jdbcTemplate.getJdbcOperations().update("DELETE FROM site_aggregate");
+        jdbcTemplate.getJdbcOperations().update("INSERT INTO site_aggregate (site_id, total_size, primary_type_id) "
+                                                        + ALL_SITES);
+    }
+}
@@ -0,0 +1,61 @@
+package com.msr.data;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds site_aggregate from the seeded site_use rows once the context is up, before the web server takes requests.
+ * The {@link PersistentStore} has been opened by then, whether or not this runs.
+ *
+ * A reopened persistent store keeps its aggregates, since every write maintains them, unless some sites lack one.
+ * Tools that never read sites, like the build time API spec export, turn the rebuild off.
+ */
+@Log4j2
+@Component
+@DependsOn(PersistentStore.BEAN_NAME)
+public class SiteAggregateInitializer implements SmartInitializingSingleton {
+
+    private final SiteAggregateDao siteAggregateDao;
+
+    private final PersistentStore persistentStore;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean enabled;
+
+    @Autowired
+    public SiteAggregateInitializer(SiteAggregateDao siteAggregateDao, PersistentStore persistentStore,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${sites.aggregates.rebuild-on-startup:true}") boolean enabled) {
+        this.siteAggregateDao = siteAggregateDao;
+        this.persistentStore = persistentStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            log.info("Site aggregates not rebuilt, sites.aggregates.rebuild-on-startup is off");
+            return;
+        }
+        if (persistentStore.isReopened() && aggregatesComplete()) {
+            log.info("Kept the site aggregates of the persistent store");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        siteAggregateDao.rebuildAll();
+        log.info("Built site aggregates in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private boolean aggregatesComplete() {
+        Integer missing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM site s "
+                + "WHERE NOT EXISTS (SELECT 1 FROM site_aggregate a WHERE a.site_id = s.id)", Integer.class);
+        return missing != null && missing == 0;
+    }
+}
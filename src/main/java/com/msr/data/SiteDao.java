@@ -1,10 +1,312 @@
 package com.msr.data;
 
+import com.google.common.collect.Iterables;
+import com.msr.model.Site;
+import com.msr.model.SiteField;
+import com.msr.model.UseType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
 /**
- * A sample DAO class for site data access
+ * A sample DAO class for site data access.
+ *
+ * Computes total size and primary use type in the database and maps each row straight to a detached {@link Site}, so
+ * neither site uses nor managed entities are loaded. Primary types are the canonical instances of the
+ * {@link UseTypeDictionary}. Ties are broken the same way as in {@link SiteAggregateDao}.
  */
 @Repository
 public class SiteDao {
-}
\ No newline at end of file
+
+    /*
+     * %1$s filters the sites on alias s and %2$s may limit them. Only the site uses of the selected sites are
+     * aggregated, so the cost of a page does not depend on where it starts.
+     */
+    private static final String AGGREGATED_SITES = "SELECT s.id, s.name, s.address, s.city, s.state, s.zipcode, "
+            + "COALESCE(p.total_size, 0) AS total_size, "
+            + "CASE WHEN p.type_size > 0 THEN p.use_type_id END AS use_type_id "
+            + "FROM (SELECT s.* FROM site s WHERE %1$s ORDER BY s.id %2$s) s "
+            + "LEFT JOIN (SELECT site_id, use_type_id, type_size, "
+            + "SUM(type_size) OVER (PARTITION BY site_id) AS total_size, "
+            + "ROW_NUMBER() OVER (PARTITION BY site_id ORDER BY type_size DESC, last_use_id) AS rn "
+            + "FROM (SELECT site_id, use_type_id, SUM(size_sqft) AS type_size, MAX(id) AS last_use_id "
+            + "FROM site_use WHERE site_id IN (SELECT s.id FROM site s WHERE %1$s ORDER BY s.id %2$s) "
+            + "GROUP BY site_id, use_type_id) g) p "
+            + "ON p.site_id = s.id AND p.rn = 1 "
+            + "ORDER BY s.id";
+
+    /*
+     * Sites with the aggregates every write stores in site_aggregate. %1$s filters on aliases s, a and t and %2$s
+     * orders and may limit the rows.
+     */
+    private static final String STORED_AGGREGATE_SITES = "SELECT s.id, s.name, s.address, s.city, s.state, "
+            + "s.zipcode, COALESCE(a.total_size, 0) AS total_size, a.primary_type_id AS use_type_id "
+            + "FROM site s LEFT JOIN site_aggregate a ON a.site_id = s.id "
+            + "LEFT JOIN use_type t ON t.id = a.primary_type_id "
+            + "WHERE %1$s %2$s";
+
+    /* %1$s are the selected columns of alias s and %2$s filters the sites. */
+    private static final String SITE_COLUMNS = "SELECT %1$s FROM site s WHERE %2$s ORDER BY s.id";
+
+    /* The columns full-text search indexes */
+    private static final String TEXT_COLUMNS = "s.id, s.name, s.address, s.city";
+
+    /* Keeps IN lists well below driver and planner limits. */
+    private static final int MAX_IN_LIST = 1000;
+
+    /* Rows fetched per round trip when streaming */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    private final UseTypeDictionary useTypeDictionary;
+
+    @Autowired
+    public SiteDao(NamedParameterJdbcTemplate jdbcTemplate, UseTypeDictionary useTypeDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.useTypeDictionary = useTypeDictionary;
+
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    public List<Site> findAll() {
+        return jdbcTemplate.query(String.format(AGGREGATED_SITES, "1 = 1", ""), this::mapRow);
+    }
+
+    public List<Site> findByState(String state) {
+        return jdbcTemplate.query(String.format(AGGREGATED_SITES, "s.state = :state", ""),
+                                  new MapSqlParameterSource("state", state), this::mapRow);
+    }
+
+    public Optional<Site> findById(int id) {
+        return jdbcTemplate.query(String.format(AGGREGATED_SITES, "s.id = :id", ""),
+                                  new MapSqlParameterSource("id", id), this::mapRow).stream().findFirst();
+    }
+
+    /**
+     * @return The sites with the given ids that exist, ordered by id.
+     */
+    public List<Site> findByIds(Collection<Integer> ids) {
+        List<Site> sites = new ArrayList<>(ids.size());
+        for (List<Integer> chunk : Iterables.partition(ids, MAX_IN_LIST)) {
+            sites.addAll(jdbcTemplate.query(String.format(AGGREGATED_SITES, "s.id IN (:ids)", ""),
+                                            new MapSqlParameterSource("ids", chunk), this::mapRow));
+        }
+        return sites;
+    }
+
+    /**
+     * @return The ids among the given ones that have a site.
+     */
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        for (List<Integer> chunk : Iterables.partition(ids, MAX_IN_LIST)) {
+            existing.addAll(jdbcTemplate.queryForList("SELECT id FROM site WHERE id IN (:ids)",
+                                                      new MapSqlParameterSource("ids", chunk), Integer.class));
+        }
+        return existing;
+    }
+
+    /**
+     * @return The ids of the sites the given site uses currently belong to, for uses that exist.
+     */
+    public Set<Integer> findSiteIdsOfUses(Collection<Integer> siteUseIds) {
+        Set<Integer> siteIds = new HashSet<>();
+        for (List<Integer> chunk : Iterables.partition(siteUseIds, MAX_IN_LIST)) {
+            siteIds.addAll(jdbcTemplate.queryForList("SELECT DISTINCT site_id FROM site_use WHERE id IN (:ids)",
+                                                     new MapSqlParameterSource("ids", chunk), Integer.class));
+        }
+        return siteIds;
+    }
+
+    /**
+     * Seeks to the sites after the given id, optionally in one state, and returns at most limit of them.
+     */
+    public List<Site> findPage(String state, int afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("afterId", afterId).addValue("limit", limit);
+        String filter = "s.id > :afterId";
+        if (state != null) {
+            filter += " AND s.state = :state";
+            params.addValue("state", state);
+        }
+        return jdbcTemplate.query(String.format(AGGREGATED_SITES, filter, "LIMIT :limit"), params, this::mapRow);
+    }
+
+    /**
+     * Finds sites by zipcode and city patterns, as {@link SiteSnapshot#findByPattern} does, aggregating only the
+     * matching sites.
+     *
+     * @param zipcode Pattern from {@link #likePattern(String)}, null for any.
+     * @param city    Lowercase pattern from {@link #likePattern(String)}, null for any.
+     * @return The matching sites ordered by id.
+     */
+    public List<Site> findByPattern(String zipcode, String city, String state) {
+        MapSqlParameterSource params = new MapSqlParameterSource("zipcode", zipcode).addValue("city", city)
+                                                                                    .addValue("state", state);
+        String filter = (zipcode == null ? "1 = 1" : "s.zipcode LIKE :zipcode ESCAPE '\\'")
+                + (city == null ? "" : " AND LOWER(s.city) LIKE :city ESCAPE '\\'")
+                + (state == null ? "" : " AND s.state = :state");
+        return jdbcTemplate.query(String.format(AGGREGATED_SITES, filter, ""), params, this::mapRow);
+    }
+
+    /**
+     * Reads the n largest sites by their stored aggregates, as {@link SiteSnapshot#findTop} does.
+     *
+     * @param primaryType Optional primary use type name, ignoring case.
+     * @return At most n sites by total size, largest first, ties by id.
+     */
+    public List<Site> findTop(int n, String state, String primaryType) {
+        MapSqlParameterSource params = new MapSqlParameterSource("n", n).addValue("state", state)
+                .addValue("primaryType", primaryType == null ? null : primaryType.toLowerCase(Locale.ROOT));
+        String filter = (state == null ? "1 = 1" : "s.state = :state")
+                + (primaryType == null ? "" : " AND LOWER(t.name) = :primaryType");
+        return jdbcTemplate.query(String.format(STORED_AGGREGATE_SITES, filter,
+                                                "ORDER BY COALESCE(a.total_size, 0) DESC, s.id LIMIT :n"),
+                                  params, this::mapRow);
+    }
+
+    /**
+     * Finds sites by their stored aggregates, as {@link SiteSnapshot#findBySize} does.
+     *
+     * @param minSize     Smallest total size, inclusive, null for any.
+     * @param maxSize     Largest total size, inclusive, null for any.
+     * @param primaryType Optional primary use type name, ignoring case.
+     * @return The matching sites ordered by id.
+     */
+    public List<Site> findBySize(Integer minSize, Integer maxSize, String primaryType, String state) {
+        MapSqlParameterSource params = new MapSqlParameterSource("minSize", minSize).addValue("maxSize", maxSize)
+                .addValue("primaryType", primaryType == null ? null : primaryType.toLowerCase(Locale.ROOT))
+                .addValue("state", state);
+        String filter = (state == null ? "1 = 1" : "s.state = :state")
+                + (minSize == null ? "" : " AND COALESCE(a.total_size, 0) >= :minSize")
+                + (maxSize == null ? "" : " AND COALESCE(a.total_size, 0) <= :maxSize")
+                + (primaryType == null ? "" : " AND LOWER(t.name) = :primaryType");
+        return jdbcTemplate.query(String.format(STORED_AGGREGATE_SITES, filter, "ORDER BY s.id"), params,
+                                  this::mapRow);
+    }
+
+    /**
+     * Hands every site, optionally in one state, to the consumer as its row is read, without collecting them.
+     */
+    public void stream(String state, Consumer<Site> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource("state", state);
+        String filter = state == null ? "1 = 1" : "s.state = :state";
+        streamingJdbcTemplate.query(String.format(AGGREGATED_SITES, filter, ""), params,
+                                    (RowCallbackHandler) rs -> consumer.accept(mapRow(rs, 0)));
+    }
+
+    /**
+     * Reads only the id, name, address and city of the given sites that exist, without touching site_use.
+     *
+     * @return Sites with just those fields set, ordered by id within each chunk of ids.
+     */
+    public List<Site> findTextByIds(Collection<Integer> ids) {
+        List<Site> sites = new ArrayList<>(ids.size());
+        for (List<Integer> chunk : Iterables.partition(ids, MAX_IN_LIST)) {
+            sites.addAll(jdbcTemplate.query(String.format(SITE_COLUMNS, TEXT_COLUMNS, "s.id IN (:ids)"),
+                                            new MapSqlParameterSource("ids", chunk), SiteDao::mapText));
+        }
+        return sites;
+    }
+
+    /**
+     * Hands the id, name, address and city of every site to the consumer as its row is read, see
+     * {@link #findTextByIds(Collection)}.
+     */
+    public void streamText(Consumer<Site> consumer) {
+        streamingJdbcTemplate.query(String.format(SITE_COLUMNS, TEXT_COLUMNS, "1 = 1"),
+                                    (RowCallbackHandler) rs -> consumer.accept(mapText(rs, 0)));
+    }
+
+    /**
+     * Reads only the selected columns of the sites, optionally in one state, without touching site_use.
+     *
+     * @param fields Plain fields only, see {@link SiteField#isAggregated()}.
+     * @return One map per site from JSON name to value, in field order, ordered by id.
+     */
+    public List<Map<String, Object>> findFields(Set<SiteField> fields, String state) {
+        MapSqlParameterSource params = new MapSqlParameterSource("state", state);
+        return jdbcTemplate.query(selectColumns(fields, state == null ? "1 = 1" : "s.state = :state"), params,
+                                  (rs, rowNum) -> mapFields(rs, fields));
+    }
+
+    public Optional<Map<String, Object>> findFieldsById(Set<SiteField> fields, int id) {
+        return jdbcTemplate.query(selectColumns(fields, "s.id = :id"), new MapSqlParameterSource("id", id),
+                                  (rs, rowNum) -> mapFields(rs, fields)).stream().findFirst();
+    }
+
+    /**
+     * Turns a zipcode or city pattern of /sites, a value or a prefix followed by *, into a LIKE pattern for the
+     * pattern finders. Called before the query, so a bad pattern surfaces as is rather than as a data access error.
+     *
+     * @throws IllegalArgumentException When * appears anywhere but at the end.
+     */
+    public static String likePattern(String pattern) {
+        boolean prefix = PrefixIndex.isPrefix(pattern);
+        String value = prefix ? pattern.substring(0, pattern.length() - 1) : pattern;
+        String escaped = value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return prefix ? escaped + "%" : escaped;
+    }
+
+    private static String selectColumns(Set<SiteField> fields, String filter) {
+        if (fields.isEmpty() || SiteField.anyAggregated(fields)) {
+            throw new IllegalArgumentException("only plain site columns can be selected: " + fields);
+        }
+        // column names come from SiteField, never from the request
+        String columns = fields.stream().map(field -> "s." + field.getColumn()).collect(Collectors.joining(", "));
+        return String.format(SITE_COLUMNS, columns, filter);
+    }
+
+    private static Map<String, Object> mapFields(ResultSet rs, Set<SiteField> fields) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (SiteField field : fields) {
+            row.put(field.getJsonName(), rs.getObject(field.getColumn()));
+        }
+        return row;
+    }
+
+    private static Site mapText(ResultSet rs, int rowNum) throws SQLException {
+        return Site.builder()
+                   .id(rs.getInt("id"))
+                   .name(rs.getString("name"))
+                   .address(rs.getString("address"))
+                   .city(rs.getString("city"))
+                   .build();
+    }
+
+    private Site mapRow(ResultSet rs, int rowNum) throws SQLException {
+        int useTypeId = rs.getInt("use_type_id");
+        UseType primaryType = rs.wasNull() ? null : useTypeDictionary.get(useTypeId);
+        return Site.builder()
+                   .id(rs.getInt("id"))
+                   .name(rs.getString("name"))
+                   .address(rs.getString("address"))
+                   .city(rs.getString("city"))
+                   .state(rs.getString("state"))
+                   .zipcode(rs.getString("zipcode"))
+                   .totalSize(rs.getInt("total_size"))
+                   .primaryType(primaryType)
+                   .build();
+    }
+}
@@ -1,13 +1,66 @@
 package com.msr.data;
 
 import com.msr.model.Site;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
- * A sample JPA repository for querying and storing sites
+ * A sample JPA repository for querying and storing sites.
+ *
+ * findAll, findByState and findById load sites with their uses in a single statement; use types are resolved from
+ * the UseTypeDictionary. The other finders leave site uses unloaded for callers that do not aggregate in memory.
+ *
+ * The seek finders page by primary key: pass PageRequest.of(0, size) so only a LIMIT, never an OFFSET, is applied.
+ *
+ * The stream finders read through a database cursor and must be consumed inside a transaction and closed.
  */
 public interface SiteRepository extends JpaRepository<Site, Integer> {
-	List<Site> findByState(String state);
-}
\ No newline at end of file
+	@Override
+	@Query("select distinct s from Site s left join fetch s.siteUses order by s.id")
+	@QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	List<Site> findAll();
+
+	@Query("select distinct s from Site s left join fetch s.siteUses "
+			+ "where s.state = :state order by s.id")
+	@QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	List<Site> findByState(@Param("state") String state);
+
+	@Override
+	@EntityGraph(attributePaths = "siteUses")
+	Optional<Site> findById(Integer id);
+
+	List<Site> findAllByOrderByIdAsc();
+
+	List<Site> findByStateOrderByIdAsc(String state);
+
+	Optional<Site> findSiteById(int id);
+
+	List<Site> findByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+	List<Site> findByStateAndIdGreaterThanOrderByIdAsc(String state, int id, Pageable pageable);
+
+	@Query("select distinct s from Site s left join fetch s.siteUses "
+			+ "where s.id in :ids order by s.id")
+	@QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	List<Site> findWithUsesByIdIn(@Param("ids") Collection<Integer> ids);
+
+	@QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+	Stream<Site> streamAllByOrderByIdAsc();
+
+	@QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+	Stream<Site> streamByStateOrderByIdAsc(String state);
+}
@@ -0,0 +1,473 @@
+package com.msr.data;
+
+import com.msr.model.Site;
+import com.msr.model.UseType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, column oriented copy of all aggregated sites.
+ *
+ * Rows are ordered by state, then id, so the sites of a state are one contiguous row range. Ids and sizes are
+ * primitive columns, state and primary use type are dictionary codes, and repeated strings are shared. Zipcode and
+ * city have {@link PrefixIndex prefix indexes}. Row orders by total size, largest first, are kept overall, per state,
+ * per primary use type name and per state and use type name, so each combination of filters is one slice of an order.
+ */
+public final class SiteSnapshot {
+
+    /* Primary type code of sites without uses */
+    static final int NO_TYPE = -1;
+
+    /* Heap layout assumed by the footprint estimate: 64 bit JVM with compressed references */
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int STRING_OVERHEAD_BYTES = 24 + ARRAY_HEADER_BYTES;
+
+    private final long version;
+
+    private final int[] ids;
+    private final int[] totalSizes;
+    private final int[] stateCodes;
+    private final int[] primaryTypeCodes;
+    private final String[] names;
+    private final String[] addresses;
+    private final String[] cities;
+    private final String[] zipcodes;
+
+    private final String[] states;
+    private final UseType[] useTypes;
+
+    /* Rows of state code c are [stateStart[c], stateStart[c + 1]) */
+    private final int[] stateStart;
+    private final Map<String, Integer> stateCodeByName;
+
+    /* Rows by total size, largest first, ties by id */
+    private final int[] sizeOrder;
+
+    /* Same, within each state range of stateStart */
+    private final int[] stateSizeOrder;
+
+    /*
+     * Use types are grouped by lowercase name, as several use types can share one. Rows of group g, largest first,
+     * are typeSizeOrder[typeStart[g]] .. typeSizeOrder[typeStart[g + 1] - 1]; sites without uses are in no group.
+     */
+    private final int[] typeGroups;
+    private final Map<String, Integer> typeGroupByName;
+    private final int[] typeStart;
+    private final int[] typeSizeOrder;
+
+    /*
+     * Within each state range of stateStart, rows by type group, then largest first, sites without uses last. Rows of
+     * a state and group are one slice, found by binary search on the group.
+     */
+    private final int[] stateTypeSizeOrder;
+
+    private final PrefixIndex zipcodeIndex;
+
+    /* Case insensitive */
+    private final PrefixIndex cityIndex;
+
+    private SiteSnapshot(long version, List<Site> sites) {
+        this.version = version;
+
+        Map<String, Integer> stateDictionary = new HashMap<>();
+        Map<Integer, Integer> useTypeDictionary = new HashMap<>();
+        List<UseType> useTypeList = new ArrayList<>();
+        Map<String, String> strings = new HashMap<>();
+
+        List<Site> rows = new ArrayList<>(sites);
+        rows.sort(Comparator.comparing(Site::getState).thenComparingInt(Site::getId));
+
+        int size = rows.size();
+        ids = new int[size];
+        totalSizes = new int[size];
+        stateCodes = new int[size];
+        primaryTypeCodes = new int[size];
+        names = new String[size];
+        addresses = new String[size];
+        cities = new String[size];
+        zipcodes = new String[size];
+
+        List<Integer> starts = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            Site site = rows.get(row);
+            ids[row] = site.getId();
+            totalSizes[row] = site.getTotalSize();
+            names[row] = site.getName();
+            addresses[row] = site.getAddress();
+            cities[row] = strings.computeIfAbsent(site.getCity(), s -> s);
+            zipcodes[row] = strings.computeIfAbsent(site.getZipcode(), s -> s);
+
+            Integer stateCode = stateDictionary.get(site.getState());
+            if (stateCode == null) {
+                // rows are sorted by state, so a new state starts a new range
+                stateCode = stateDictionary.size();
+                stateDictionary.put(site.getState(), stateCode);
+                starts.add(row);
+            }
+            stateCodes[row] = stateCode;
+
+            UseType primaryType = site.getPrimaryType();
+            if (primaryType == null) {
+                primaryTypeCodes[row] = NO_TYPE;
+            } else {
+                primaryTypeCodes[row] = useTypeDictionary.computeIfAbsent(primaryType.getId(), id -> {
+                    useTypeList.add(primaryType);
+                    return useTypeList.size() - 1;
+                });
+            }
+        }
+        starts.add(size);
+
+        states = new String[stateDictionary.size()];
+        stateDictionary.forEach((state, code) -> states[code] = state);
+        stateStart = starts.stream().mapToInt(Integer::intValue).toArray();
+        stateCodeByName = Collections.unmodifiableMap(stateDictionary);
+        useTypes = useTypeList.toArray(new UseType[0]);
+
+        Map<String, Integer> groups = new HashMap<>();
+        typeGroups = new int[useTypes.length];
+        for (int code = 0; code < useTypes.length; code++) {
+            String name = useTypes[code].getName().toLowerCase(Locale.ROOT);
+            typeGroups[code] = groups.computeIfAbsent(name, n -> groups.size());
+        }
+        typeGroupByName = Collections.unmodifiableMap(groups);
+
+        Comparator<Integer> bySize = (a, b) -> totalSizes[a] != totalSizes[b]
+                ? Integer.compare(totalSizes[b], totalSizes[a]) : Integer.compare(ids[a], ids[b]);
+        sizeOrder = sortRows(IntStream.range(0, size), bySize);
+        stateSizeOrder = new int[size];
+        for (int code = 0; code < states.length; code++) {
+            int[] stateRows = sortRows(IntStream.range(stateStart[code], stateStart[code + 1]), bySize);
+            System.arraycopy(stateRows, 0, stateSizeOrder, stateStart[code], stateRows.length);
+        }
+        typeSizeOrder = sortRows(IntStream.range(0, size).filter(row -> primaryTypeCodes[row] != NO_TYPE),
+                                 Comparator.<Integer>comparingInt(row -> typeGroups[primaryTypeCodes[row]])
+                                           .thenComparing(bySize));
+        stateTypeSizeOrder = new int[size];
+        for (int code = 0; code < states.length; code++) {
+            int[] stateRows = sortRows(IntStream.range(stateStart[code], stateStart[code + 1]),
+                                       Comparator.<Integer>comparingInt(this::typeGroup).thenComparing(bySize));
+            System.arraycopy(stateRows, 0, stateTypeSizeOrder, stateStart[code], stateRows.length);
+        }
+        typeStart = new int[groups.size() + 1];
+        for (int row : typeSizeOrder) {
+            typeStart[typeGroups[primaryTypeCodes[row]] + 1]++;
+        }
+        for (int group = 0; group < groups.size(); group++) {
+            typeStart[group + 1] += typeStart[group];
+        }
+
+        zipcodeIndex = new PrefixIndex(zipcodes, ids, UnaryOperator.identity());
+        cityIndex = new PrefixIndex(cities, ids, city -> city.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param version Version of the data the sites were read at.
+     * @param sites   Aggregated sites, in any order. Every site needs a state.
+     */
+    public static SiteSnapshot of(long version, List<Site> sites) {
+        return new SiteSnapshot(version, sites);
+    }
+
+    /**
+     * Builds the next snapshot from the rows of this one, so only the changed sites have to be read again.
+     *
+     * @param version    Version of the data the changed sites were read at.
+     * @param changed    The changed sites that still exist, aggregated.
+     * @param changedIds Ids of all changed sites; those without a site in changed are dropped.
+     */
+    public SiteSnapshot with(long version, List<Site> changed, Set<Integer> changedIds) {
+        List<Site> sites = new ArrayList<>(size() + changed.size());
+        for (int row = 0; row < size(); row++) {
+            if (!changedIds.contains(ids[row])) {
+                sites.add(toSite(row));
+            }
+        }
+        sites.addAll(changed);
+        return new SiteSnapshot(version, sites);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return The sites of the state ordered by id, without touching the database.
+     */
+    public List<Site> findByState(String state) {
+        Integer code = stateCodeByName.get(state);
+        if (code == null) {
+            return Collections.emptyList();
+        }
+        List<Site> sites = new ArrayList<>(stateStart[code + 1] - stateStart[code]);
+        for (int row = stateStart[code]; row < stateStart[code + 1]; row++) {
+            sites.add(toSite(row));
+        }
+        return sites;
+    }
+
+    /**
+     * Finds sites by zipcode and city, each given as a value or as a prefix followed by *, e.g. 921* or San*.
+     * Cities ignore case. The more selective of the two indexes is scanned and only its matches are checked
+     * against the other pattern and the state, so the cost follows the number of candidates, not the number of sites.
+     *
+     * @param zipcode Zipcode pattern, null for any.
+     * @param city    City pattern, null for any.
+     * @param state   Optional state filter.
+     * @return The matching sites ordered by id.
+     * @throws IllegalArgumentException When neither pattern is given or * is not at the end of one.
+     */
+    public List<Site> findByPattern(String zipcode, String city, String state) {
+        if (zipcode == null && city == null) {
+            throw new IllegalArgumentException("zipcode or city pattern required");
+        }
+        int[] zipcodeRange = zipcode == null ? null : zipcodeIndex.range(zipcode);
+        int[] cityRange = city == null ? null : cityIndex.range(city);
+        Integer stateCode = state == null ? null : stateCodeByName.get(state);
+        if (state != null && stateCode == null) {
+            return Collections.emptyList();
+        }
+
+        boolean byZipcode = cityRange == null
+                || zipcodeRange != null && zipcodeRange[1] - zipcodeRange[0] <= cityRange[1] - cityRange[0];
+        PrefixIndex index = byZipcode ? zipcodeIndex : cityIndex;
+        int[] range = byZipcode ? zipcodeRange : cityRange;
+        String[] otherColumn = byZipcode ? cities : zipcodes;
+        String otherPattern = byZipcode ? city : zipcode;
+        Predicate<String> other = otherPattern == null ? null
+                : (byZipcode ? cityIndex : zipcodeIndex).matcher(otherPattern);
+
+        // id in the high half, row in the low half, so sorting orders matches by id
+        long[] matches = new long[range[1] - range[0]];
+        int found = 0;
+        for (int position = range[0]; position < range[1]; position++) {
+            int row = index.row(position);
+            if (stateCode != null && stateCodes[row] != stateCode) {
+                continue;
+            }
+            if (other != null && !other.test(otherColumn[row])) {
+                continue;
+            }
+            matches[found++] = (long) ids[row] << 32 | row;
+        }
+        Arrays.sort(matches, 0, found);
+
+        List<Site> sites = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            sites.add(toSite((int) matches[i]));
+        }
+        return sites;
+    }
+
+    /**
+     * Reads the n largest sites off the size orders, so the cost follows n rather than the number of sites, with or
+     * without filters.
+     *
+     * @param state       Optional state filter.
+     * @param primaryType Optional primary use type name, ignoring case. Use types sharing a name match together.
+     * @return At most n sites by total size, largest first, ties by id.
+     */
+    public List<Site> findTop(int n, String state, String primaryType) {
+        SizeOrder order = sizeOrder(state, primaryType, null, null);
+        int to = Math.min(order.to, order.from + n);
+        List<Site> top = new ArrayList<>(to - order.from);
+        for (int i = order.from; i < to; i++) {
+            top.add(toSite(order.rows[i]));
+        }
+        return top;
+    }
+
+    /**
+     * Finds sites by total size range, primary use type and state. The filters pick one slice of a size order, which
+     * holds a size range as one slice again, found by two binary searches, so only matching rows are read.
+     *
+     * @param minSize     Smallest total size, inclusive, null for any.
+     * @param maxSize     Largest total size, inclusive, null for any.
+     * @param primaryType Optional primary use type name, ignoring case. Use types sharing a name match together.
+     * @param state       Optional state filter.
+     * @return The matching sites ordered by id.
+     */
+    public List<Site> findBySize(Integer minSize, Integer maxSize, String primaryType, String state) {
+        SizeOrder order = sizeOrder(state, primaryType, minSize, maxSize);
+
+        // id in the high half, row in the low half, so sorting orders matches by id
+        long[] matches = new long[order.to - order.from];
+        for (int i = 0; i < matches.length; i++) {
+            int row = order.rows[order.from + i];
+            matches[i] = (long) ids[row] << 32 | row;
+        }
+        Arrays.sort(matches);
+
+        List<Site> sites = new ArrayList<>(matches.length);
+        for (int i = 0; i < matches.length; i++) {
+            sites.add(toSite((int) matches[i]));
+        }
+        return sites;
+    }
+
+    /* The slice of a size order holding exactly the rows that pass the filters */
+    private SizeOrder sizeOrder(String state, String primaryType, Integer minSize, Integer maxSize) {
+        int stateCode = state == null ? -1 : stateCodeByName.getOrDefault(state, -2);
+        int typeGroup = primaryType == null ? -1
+                : typeGroupByName.getOrDefault(primaryType.toLowerCase(Locale.ROOT), -2);
+        if (stateCode == -2 || typeGroup == -2) {
+            return new SizeOrder(sizeOrder, 0, 0);
+        }
+
+        if (stateCode >= 0 && typeGroup >= 0) {
+            int from = firstOfGroup(stateStart[stateCode], stateStart[stateCode + 1], typeGroup);
+            int to = firstOfGroup(from, stateStart[stateCode + 1], typeGroup + 1);
+            return sizeRange(stateTypeSizeOrder, from, to, minSize, maxSize);
+        }
+        if (stateCode >= 0) {
+            return sizeRange(stateSizeOrder, stateStart[stateCode], stateStart[stateCode + 1], minSize, maxSize);
+        }
+        if (typeGroup >= 0) {
+            return sizeRange(typeSizeOrder, typeStart[typeGroup], typeStart[typeGroup + 1], minSize, maxSize);
+        }
+        return sizeRange(sizeOrder, 0, size(), minSize, maxSize);
+    }
+
+    /* Cuts rows [from, to) of a size order down to the sizes within [minSize, maxSize] */
+    private SizeOrder sizeRange(int[] rows, int from, int to, Integer minSize, Integer maxSize) {
+        int first = maxSize == null ? from : firstBelow(rows, from, to, (long) maxSize + 1);
+        int last = minSize == null ? to : Math.max(first, firstBelow(rows, first, to, minSize));
+        return new SizeOrder(rows, first, last);
+    }
+
+    /* First position in [from, to) of a size order whose total size is below the bound, to if there is none */
+    private int firstBelow(int[] rows, int from, int to, long bound) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (totalSizes[rows[mid]] >= bound) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /* First position in [from, to) of one state range of stateTypeSizeOrder whose type group is at least group */
+    private int firstOfGroup(int from, int to, int group) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (typeGroup(stateTypeSizeOrder[mid]) < group) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /* Type group of the row's primary type, sorting sites without uses after every group */
+    private int typeGroup(int row) {
+        return primaryTypeCodes[row] == NO_TYPE ? Integer.MAX_VALUE : typeGroups[primaryTypeCodes[row]];
+    }
+
+    /* Rows [from, to) of one size order */
+    private static final class SizeOrder {
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        private SizeOrder(int[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    Site toSite(int row) {
+        int typeCode = primaryTypeCodes[row];
+        return Site.builder()
+                   .id(ids[row])
+                   .name(names[row])
+                   .address(addresses[row])
+                   .city(cities[row])
+                   .state(states[stateCodes[row]])
+                   .zipcode(zipcodes[row])
+                   .totalSize(totalSizes[row])
+                   .primaryType(typeCode == NO_TYPE ? null : useTypes[typeCode])
+                   .build();
+    }
+
+    /**
+     * Estimates the heap held by each column, assuming compressed references and one byte per string character.
+     *
+     * @return Bytes per column and "totalBytes", plus the "rows", "states" and "useTypes" counts.
+     */
+    public Map<String, Long> footprint() {
+        Map<String, Long> footprint = new LinkedHashMap<>();
+        footprint.put("rows", (long) size());
+        footprint.put("states", (long) states.length);
+        footprint.put("useTypes", (long) useTypes.length);
+
+        Map<String, Long> columns = new LinkedHashMap<>();
+        columns.put("ids", intArrayBytes(ids));
+        columns.put("totalSizes", intArrayBytes(totalSizes));
+        columns.put("stateCodes", intArrayBytes(stateCodes));
+        columns.put("primaryTypeCodes", intArrayBytes(primaryTypeCodes));
+        columns.put("stateIndex", intArrayBytes(stateStart) + stringColumnBytes(states));
+        columns.put("names", stringColumnBytes(names));
+        columns.put("addresses", stringColumnBytes(addresses));
+        columns.put("cities", stringColumnBytes(cities));
+        columns.put("zipcodes", stringColumnBytes(zipcodes));
+        columns.put("sizeIndex", intArrayBytes(sizeOrder) + intArrayBytes(stateSizeOrder) + intArrayBytes(typeGroups)
+                + intArrayBytes(typeStart) + intArrayBytes(typeSizeOrder) + intArrayBytes(stateTypeSizeOrder));
+        columns.put("zipcodeIndex", zipcodeIndex.bytes(ARRAY_HEADER_BYTES, REFERENCE_BYTES, STRING_OVERHEAD_BYTES));
+        columns.put("cityIndex", cityIndex.bytes(ARRAY_HEADER_BYTES, REFERENCE_BYTES, STRING_OVERHEAD_BYTES));
+
+        columns.forEach((column, bytes) -> footprint.put(column + "Bytes", bytes));
+        footprint.put("totalBytes", columns.values().stream().mapToLong(Long::longValue).sum());
+        return footprint;
+    }
+
+    private static int[] sortRows(IntStream rows, Comparator<Integer> order) {
+        return rows.boxed().sorted(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long intArrayBytes(int[] array) {
+        return ARRAY_HEADER_BYTES + (long) array.length * Integer.BYTES;
+    }
+
+    /* Shared strings are counted once. */
+    private static long stringColumnBytes(String[] column) {
+        long bytes = ARRAY_HEADER_BYTES + (long) column.length * REFERENCE_BYTES;
+        Map<String, Boolean> seen = new IdentityHashMap<>();
+        for (String value : column) {
+            if (value != null && seen.put(value, Boolean.TRUE) == null) {
+                bytes += STRING_OVERHEAD_BYTES + value.length();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SiteSnapshot{version=" + version + ", rows=" + size() + ", states=" + Arrays.toString(states) + "}";
+    }
+}
@@ -0,0 +1,110 @@
+package com.msr.data;
+
+import com.msr.model.SiteStats;
+import com.msr.model.UseType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Computes {@link SiteStats} with GROUP BY queries over site and the materialized site_aggregate table, without
+ * reading any site into memory
+ */
+@Repository
+public class SiteStatsDao {
+
+    private static final String SITES = "FROM site s LEFT JOIN site_aggregate a ON a.site_id = s.id ";
+
+    private static final String SIZE = "COALESCE(a.total_size, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final UseTypeDictionary useTypeDictionary;
+
+    @Autowired
+    public SiteStatsDao(JdbcTemplate jdbcTemplate, UseTypeDictionary useTypeDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.useTypeDictionary = useTypeDictionary;
+    }
+
+    /**
+     * Runs all queries in one repeatable read transaction, so the totals, breakdowns and histogram describe the same
+     * sites even while writes commit in between.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public SiteStats getStats() {
+        Map<String, SiteStats.SiteTotals> byState = new TreeMap<>();
+        jdbcTemplate.query("SELECT s.state, COUNT(*) AS sites, SUM(" + SIZE + ") AS total_size " + SITES
+                                   + "GROUP BY s.state",
+                           (RowCallbackHandler) rs -> add(byState, rs.getString("state"), rs.getLong("sites"),
+                                                          rs.getLong("total_size")));
+
+        Map<String, SiteStats.SiteTotals> byCity = new TreeMap<>();
+        jdbcTemplate.query("SELECT s.city, s.state, COUNT(*) AS sites, SUM(" + SIZE + ") AS total_size " + SITES
+                                   + "GROUP BY s.city, s.state",
+                           (RowCallbackHandler) rs -> add(byCity,
+                                                          SiteStats.cityKey(rs.getString("city"), rs.getString("state")),
+                                                          rs.getLong("sites"), rs.getLong("total_size")));
+
+        // types are grouped by id and named from the dictionary; equally named types end up in one entry
+        Map<String, SiteStats.SiteTotals> byPrimaryType = new TreeMap<>();
+        jdbcTemplate.query("SELECT a.primary_type_id, COUNT(*) AS sites, SUM(" + SIZE + ") AS total_size " + SITES
+                                   + "GROUP BY a.primary_type_id",
+                           (RowCallbackHandler) rs -> {
+                               int typeId = rs.getInt("primary_type_id");
+                               UseType useType = rs.wasNull() ? null : useTypeDictionary.get(typeId);
+                               add(byPrimaryType, useType == null ? SiteStats.NO_PRIMARY_TYPE : useType.getName(),
+                                   rs.getLong("sites"), rs.getLong("total_size"));
+                           });
+
+        long[] sizeHistogram = new long[SiteStats.sizeBucketCount()];
+        jdbcTemplate.query("SELECT " + bucketExpression() + " AS bucket, COUNT(*) AS sites " + SITES
+                                   + "GROUP BY bucket",
+                           (RowCallbackHandler) rs -> sizeHistogram[rs.getInt("bucket")] = rs.getLong("sites"));
+        List<SiteStats.SizeBucket> buckets = new ArrayList<>(sizeHistogram.length);
+        for (int bucket = 0; bucket < sizeHistogram.length; bucket++) {
+            buckets.add(new SiteStats.SizeBucket(SiteStats.sizeBucketMin(bucket), SiteStats.sizeBucketMax(bucket),
+                                                 sizeHistogram[bucket]));
+        }
+
+        long sites = 0;
+        long totalSize = 0;
+        for (SiteStats.SiteTotals totals : byState.values()) {
+            sites += totals.getSites();
+            totalSize += totals.getTotalSize();
+        }
+
+        return SiteStats.builder()
+                        .sites(sites)
+                        .totalSize(totalSize)
+                        .byState(byState)
+                        .byCity(byCity)
+                        .byPrimaryType(byPrimaryType)
+                        .sizeHistogram(buckets)
+                        .build();
+    }
+
+    /* CASE expression mapping a size to the same bucket as SiteStats.sizeBucket */
+    private static String bucketExpression() {
+        StringBuilder expression = new StringBuilder("CASE");
+        for (int bucket = SiteStats.sizeBucketCount() - 1; bucket > 0; bucket--) {
+            expression.append(" WHEN ").append(SIZE).append(" >= ").append(SiteStats.sizeBucketMin(bucket))
+                      .append(" THEN ").append(bucket);
+        }
+        return expression.append(" ELSE 0 END").toString();
+    }
+
+    private static void add(Map<String, SiteStats.SiteTotals> totals, String key, long sites, long size) {
+        SiteStats.SiteTotals current = totals.computeIfAbsent(key, k -> new SiteStats.SiteTotals());
+        current.setSites(current.getSites() + sites);
+        current.setTotalSize(current.getTotalSize() + size);
+    }
+}
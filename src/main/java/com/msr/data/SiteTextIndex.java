@@ -0,0 +1,447 @@
+package com.msr.data;
+
+import com.msr.model.Site;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Inverted index over the name, address and city of sites, answering ranked full-text queries.
+ *
+ * Text is split into lowercase runs of letters and digits. Each term has a posting list of the sites containing it,
+ * ordered by id and stored as varint id gaps, each followed by one byte of weight: occurrences in the name count
+ * {@value #NAME_WEIGHT} times, in the address and city once. Posting lists are immutable and replaced one term at a
+ * time, so searches run without locking while {@link #update} touches only the terms of the sites it is given.
+ * Updates are not thread safe among themselves; one writer at a time.
+ */
+public final class SiteTextIndex {
+
+    static final int NAME_WEIGHT = 3;
+    static final int ADDRESS_WEIGHT = 1;
+    static final int CITY_WEIGHT = 1;
+
+    private static final int MAX_WEIGHT = 255;
+
+    /* Heap layout assumed by the footprint estimate, as in SiteSnapshot */
+    private static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int STRING_OVERHEAD_BYTES = 24 + ARRAY_HEADER_BYTES;
+    private static final int MAP_ENTRY_BYTES = 32;
+
+    private final Map<String, Postings> postings = new ConcurrentHashMap<>();
+
+    /* Terms of each indexed site, to find its postings again when it changes or goes away */
+    private final Map<Integer, Document> documents = new ConcurrentHashMap<>();
+
+    private volatile int size;
+
+    /**
+     * @return An index of the given sites.
+     */
+    public static SiteTextIndex of(Collection<Site> sites) {
+        SiteTextIndex index = new SiteTextIndex();
+        index.update(sites, Collections.emptySet());
+        return index;
+    }
+
+    /**
+     * @return The number of indexed sites.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indexes the given sites, replacing what was indexed for them before, and drops the removed ones. Only the
+     * posting lists of terms that a changed site gained or lost are rewritten, each once per call, so batches of
+     * changes cost one pass over every affected posting list.
+     *
+     * @param changed Sites to add or reindex.
+     * @param removed Ids of sites that no longer exist.
+     */
+    public void update(Collection<Site> changed, Collection<Integer> removed) {
+        // per term, the sites to drop from and the sites to (re)insert into its posting list
+        Map<String, Set<Integer>> drops = new HashMap<>();
+        Map<String, TreeMap<Integer, Integer>> inserts = new HashMap<>();
+        // one string instance per term, shared by the postings map and every document holding the term
+        Map<String, String> newTerms = new HashMap<>();
+        UnaryOperator<String> canonical = term -> {
+            Postings list = postings.get(term);
+            return list != null ? list.term : newTerms.computeIfAbsent(term, t -> t);
+        };
+
+        for (Integer siteId : removed) {
+            Document old = documents.remove(siteId);
+            if (old != null) {
+                for (String term : old.terms) {
+                    drops.computeIfAbsent(term, t -> new HashSet<>()).add(siteId);
+                }
+            }
+        }
+        for (Site site : changed) {
+            Document document = Document.of(site, canonical);
+            Document old = documents.get(site.getId());
+            if (document.equals(old)) {
+                // site use changes leave the text alone
+                continue;
+            }
+            if (old != null) {
+                for (String term : old.terms) {
+                    drops.computeIfAbsent(term, t -> new HashSet<>()).add(site.getId());
+                }
+            }
+            for (int i = 0; i < document.terms.length; i++) {
+                inserts.computeIfAbsent(document.terms[i], t -> new TreeMap<>()).put(site.getId(), document.weights[i]);
+            }
+            documents.put(site.getId(), document);
+        }
+
+        Set<String> terms = new LinkedHashSet<>(drops.keySet());
+        terms.addAll(inserts.keySet());
+        for (String term : terms) {
+            Postings merged = Postings.merge(term, postings.get(term),
+                                             drops.getOrDefault(term, Collections.emptySet()),
+                                             inserts.getOrDefault(term, new TreeMap<>()));
+            if (merged.count == 0) {
+                postings.remove(term);
+            } else {
+                postings.put(term, merged);
+            }
+        }
+        size = documents.size();
+    }
+
+    /**
+     * Ranks the sites containing any of the query terms by the sum, over the terms they contain, of their weight for
+     * the term times its inverse document frequency, so rare terms and name matches count most. Posting lists are
+     * merged by id in one pass and only the best limit sites are kept.
+     *
+     * @return Ids of at most limit sites, best first, ties by id.
+     * @throws IllegalArgumentException When the query has no terms.
+     */
+    public int[] search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("query has no terms: " + query);
+        }
+
+        int sites = size;
+        List<PostingCursor> cursors = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list != null) {
+                double idf = Math.log(1 + (sites - list.count + 0.5) / (list.count + 0.5));
+                PostingCursor cursor = new PostingCursor(list, idf);
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+        }
+
+        TopK top = new TopK(limit);
+        while (!cursors.isEmpty()) {
+            int siteId = Integer.MAX_VALUE;
+            for (PostingCursor cursor : cursors) {
+                siteId = Math.min(siteId, cursor.siteId);
+            }
+            double score = 0;
+            for (int i = cursors.size() - 1; i >= 0; i--) {
+                PostingCursor cursor = cursors.get(i);
+                if (cursor.siteId == siteId) {
+                    score += cursor.weight * cursor.idf;
+                    if (!cursor.next()) {
+                        cursors.remove(i);
+                    }
+                }
+            }
+            top.offer(siteId, score);
+        }
+        return top.ids();
+    }
+
+    /**
+     * Estimates the heap held by the index, assuming compressed references and one byte per string character.
+     *
+     * @return "sites", "terms" and "postings" counts, "postingBytes" of encoded posting lists, "documentBytes" of the
+     * per site term lists and "totalBytes".
+     */
+    public Map<String, Long> footprint() {
+        long entries = 0;
+        long postingBytes = 0;
+        for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+            Postings list = entry.getValue();
+            entries += list.count;
+            postingBytes += MAP_ENTRY_BYTES + STRING_OVERHEAD_BYTES + entry.getKey().length()
+                    + OBJECT_HEADER_BYTES + Integer.BYTES + 2 * REFERENCE_BYTES + ARRAY_HEADER_BYTES + list.data.length;
+        }
+        long documentBytes = 0;
+        for (Document document : documents.values()) {
+            // term strings are counted with the postings map, which shares them
+            documentBytes += MAP_ENTRY_BYTES + OBJECT_HEADER_BYTES + Integer.BYTES + OBJECT_HEADER_BYTES
+                    + 2 * REFERENCE_BYTES + 2 * ARRAY_HEADER_BYTES
+                    + (long) document.terms.length * (REFERENCE_BYTES + Integer.BYTES);
+        }
+
+        Map<String, Long> footprint = new LinkedHashMap<>();
+        footprint.put("sites", (long) documents.size());
+        footprint.put("terms", (long) postings.size());
+        footprint.put("postings", entries);
+        footprint.put("postingBytes", postingBytes);
+        footprint.put("documentBytes", documentBytes);
+        footprint.put("totalBytes", postingBytes + documentBytes);
+        return footprint;
+    }
+
+    /**
+     * @return The lowercase runs of letters and digits in the text, in order, repeats included.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean inToken = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /* Distinct terms of one site, sorted, with their weights */
+    private static final class Document {
+        private final String[] terms;
+        private final int[] weights;
+
+        private Document(String[] terms, int[] weights) {
+            this.terms = terms;
+            this.weights = weights;
+        }
+
+        private static Document of(Site site, UnaryOperator<String> canonical) {
+            Map<String, Integer> weights = new TreeMap<>();
+            addTerms(weights, site.getName(), NAME_WEIGHT);
+            addTerms(weights, site.getAddress(), ADDRESS_WEIGHT);
+            addTerms(weights, site.getCity(), CITY_WEIGHT);
+            return new Document(weights.keySet().stream().map(canonical).toArray(String[]::new),
+                                weights.values().stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+            for (String term : tokenize(text)) {
+                weights.merge(term, weight, (a, b) -> Math.min(MAX_WEIGHT, a + b));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Document)) {
+                return false;
+            }
+            Document other = (Document) o;
+            return Arrays.equals(terms, other.terms) && Arrays.equals(weights, other.weights);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(terms) + Arrays.hashCode(weights);
+        }
+    }
+
+    /* Posting list of one term: per site the varint gap to the previous id, then one weight byte */
+    private static final class Postings {
+        private final String term;
+        private final byte[] data;
+        private final int count;
+
+        private Postings(String term, byte[] data, int count) {
+            this.term = term;
+            this.data = data;
+            this.count = count;
+        }
+
+        /**
+         * @return The list without the dropped sites and with the inserted ones, re-encoded in one pass.
+         */
+        private static Postings merge(String term, Postings list, Set<Integer> drops,
+                                      TreeMap<Integer, Integer> inserts) {
+            Encoder encoder = new Encoder(list == null ? inserts.size() * 3 : list.data.length + inserts.size() * 3);
+            Map.Entry<Integer, Integer> insert = inserts.firstEntry();
+            if (list != null) {
+                PostingCursor cursor = new PostingCursor(list, 0);
+                while (cursor.next()) {
+                    while (insert != null && insert.getKey() < cursor.siteId) {
+                        encoder.add(insert.getKey(), insert.getValue());
+                        insert = inserts.higherEntry(insert.getKey());
+                    }
+                    if (insert != null && insert.getKey() == cursor.siteId) {
+                        encoder.add(insert.getKey(), insert.getValue());
+                        insert = inserts.higherEntry(insert.getKey());
+                    } else if (!drops.contains(cursor.siteId)) {
+                        encoder.add(cursor.siteId, cursor.weight);
+                    }
+                }
+            }
+            while (insert != null) {
+                encoder.add(insert.getKey(), insert.getValue());
+                insert = inserts.higherEntry(insert.getKey());
+            }
+            return new Postings(term, encoder.toByteArray(), encoder.count);
+        }
+    }
+
+    private static final class Encoder {
+        private byte[] data;
+        private int length;
+        private int count;
+        private int lastId;
+
+        private Encoder(int capacity) {
+            data = new byte[Math.max(capacity, 8)];
+        }
+
+        private void add(int siteId, int weight) {
+            if (length + 6 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            int gap = siteId - lastId;
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) (gap & 0x7F | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            data[length++] = (byte) weight;
+            lastId = siteId;
+            count++;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+
+    private static final class PostingCursor {
+        private final byte[] data;
+        private final double idf;
+        private int position;
+        private int siteId;
+        private int weight;
+
+        private PostingCursor(Postings list, double idf) {
+            this.data = list.data;
+            this.idf = idf;
+        }
+
+        private boolean next() {
+            if (position >= data.length) {
+                return false;
+            }
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            siteId += gap;
+            weight = data[position++] & 0xFF;
+            return true;
+        }
+    }
+
+    /* Min-heap of the best sites seen so far, the worst of them on top */
+    private static final class TopK {
+        private final int[] ids;
+        private final double[] scores;
+        private int size;
+
+        private TopK(int limit) {
+            ids = new int[limit];
+            scores = new double[limit];
+        }
+
+        private void offer(int siteId, double score) {
+            if (size < ids.length) {
+                ids[size] = siteId;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && worse(ids[0], scores[0], siteId, score)) {
+                ids[0] = siteId;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        /* Best first, ties by id */
+        private int[] ids() {
+            int[] ranked = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                ranked[i] = ids[0];
+                swap(0, --size);
+                siftDown(0);
+            }
+            return ranked;
+        }
+
+        private static boolean worse(int id, double score, int otherId, double otherScore) {
+            return score < otherScore || score == otherScore && id > otherId;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!worse(ids[i], scores[i], ids[parent], scores[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (worse(ids[child], scores[child], ids[worst], scores[worst])) {
+                        worst = child;
+                    }
+                }
+                if (worst == i) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            double score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.msr.data;
+
+import com.msr.model.SiteUse;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * JPA repository for site uses
+ */
+public interface SiteUseRepository extends JpaRepository<SiteUse, Integer> {
+}
@@ -0,0 +1,116 @@
+package com.msr.data;
+
+import com.msr.model.UseType;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable, id-indexed table of all use types, loaded with plain JDBC at startup, before the web server takes
+ * requests, or on first use by anything running earlier.
+ *
+ * Every site and site use refers to the same canonical {@link UseType} instance, so resolving a use type is an array
+ * access rather than a query or a Hibernate proxy. {@link #reload()} swaps in a new table after use types are
+ * imported.
+ */
+@Component
+@DependsOn(PersistentStore.BEAN_NAME)
+public class UseTypeDictionary implements SmartInitializingSingleton {
+
+    /* Ids up to this many times the number of use types are held in an array, larger ones in a map */
+    private static final int MAX_DENSE_IDS_PER_USE_TYPE = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Table table;
+
+    @Autowired
+    public UseTypeDictionary(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return The canonical use type, null when there is no use type with that id.
+     */
+    public UseType get(int id) {
+        Table current = table();
+        return id >= 0 && id < current.byId.length ? current.byId[id] : current.bySparseId.get(id);
+    }
+
+    /**
+     * @return The canonical use type with that name, ignoring case, null when there is none.
+     */
+    public UseType getByName(String name) {
+        return name == null ? null : table().byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return All use types ordered by id.
+     */
+    public List<UseType> all() {
+        return table().all;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        table();
+    }
+
+    public synchronized void reload() {
+        List<UseType> useTypes = jdbcTemplate.query("SELECT id, name FROM use_type ORDER BY id", (rs, rowNum) ->
+                UseType.builder().id(rs.getInt("id")).name(rs.getString("name")).build());
+        table = new Table(useTypes);
+    }
+
+    private Table table() {
+        Table current = table;
+        if (current == null) {
+            synchronized (this) {
+                if (table == null) {
+                    reload();
+                }
+                current = table;
+            }
+        }
+        return current;
+    }
+
+    /*
+     * Ids are usually small and dense, but nothing requires it: the array covers ids up to a multiple of the number
+     * of use types, so a few large ids cost map entries rather than a huge, empty array.
+     */
+    private static final class Table {
+        private final UseType[] byId;
+        private final Map<Integer, UseType> bySparseId;
+        private final Map<String, UseType> byName;
+        private final List<UseType> all;
+
+        /* useTypes ordered by id */
+        private Table(List<UseType> useTypes) {
+            int maxId = useTypes.stream().mapToInt(UseType::getId).max().orElse(-1);
+            byId = new UseType[(int) Math.min(maxId + 1L, (long) useTypes.size() * MAX_DENSE_IDS_PER_USE_TYPE)];
+            Map<Integer, UseType> sparse = new HashMap<>();
+            Map<String, UseType> names = new HashMap<>();
+            for (UseType useType : useTypes) {
+                int id = useType.getId();
+                if (id >= 0 && id < byId.length) {
+                    byId[id] = useType;
+                } else {
+                    sparse.put(id, useType);
+                }
+                names.putIfAbsent(useType.getName().toLowerCase(Locale.ROOT), useType);
+            }
+            bySparseId = sparse.isEmpty() ? Collections.emptyMap() : sparse;
+            byName = Collections.unmodifiableMap(names);
+            all = Collections.unmodifiableList(useTypes);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.msr.data;
+
+import com.msr.model.UseType;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository fragment answering use type reads from the {@link UseTypeDictionary} instead of the database. Its methods
+ * are named apart from the inherited CrudRepository ones, which still query use_type.
+ */
+public interface UseTypeLookup {
+    Optional<UseType> lookup(int id);
+
+    List<UseType> lookupAll(Iterable<Integer> ids);
+
+    List<UseType> lookupAll();
+}
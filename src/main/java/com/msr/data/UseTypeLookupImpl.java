@@ -0,0 +1,39 @@
+package com.msr.data;
+
+import com.msr.model.UseType;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+class UseTypeLookupImpl implements UseTypeLookup {
+
+    private final UseTypeDictionary useTypeDictionary;
+
+    @Autowired
+    UseTypeLookupImpl(UseTypeDictionary useTypeDictionary) {
+        this.useTypeDictionary = useTypeDictionary;
+    }
+
+    @Override
+    public Optional<UseType> lookup(int id) {
+        return Optional.ofNullable(useTypeDictionary.get(id));
+    }
+
+    @Override
+    public List<UseType> lookupAll(Iterable<Integer> ids) {
+        List<UseType> useTypes = new ArrayList<>();
+        for (Integer id : ids) {
+            if (id != null) {
+                lookup(id).ifPresent(useTypes::add);
+            }
+        }
+        return useTypes;
+    }
+
+    @Override
+    public List<UseType> lookupAll() {
+        return useTypeDictionary.all();
+    }
+}
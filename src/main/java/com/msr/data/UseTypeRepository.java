@@ -4,7 +4,8 @@ import com.msr.model.UseType;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 /**
- * A sample JPA repository for use types
+ * A sample JPA repository for use types. The {@link UseTypeLookup} methods read from the
+ * {@link UseTypeDictionary} without a query.
  */
-public interface UseTypeRepository extends JpaRepository<UseType, Integer> {
+public interface UseTypeRepository extends JpaRepository<UseType, Integer>, UseTypeLookup {
 }
@@ -0,0 +1,37 @@
+package com.msr.data;
+
+import com.msr.model.SiteUse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+/**
+ * Entity listener giving every loaded {@link SiteUse} the canonical {@link com.msr.model.UseType} of its
+ * use_type_id. Hibernate obtains it from the Spring context, so it can be injected.
+ */
+@Component
+public class UseTypeResolver {
+
+    private final UseTypeDictionary useTypeDictionary;
+
+    @Autowired
+    public UseTypeResolver(UseTypeDictionary useTypeDictionary) {
+        this.useTypeDictionary = useTypeDictionary;
+    }
+
+    @PostLoad
+    public void resolve(SiteUse siteUse) {
+        siteUse.setUseType(useTypeDictionary.get(siteUse.getUseTypeId()));
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void syncId(SiteUse siteUse) {
+        if (siteUse.getUseType() != null) {
+            siteUse.setUseTypeId(siteUse.getUseType().getId());
+        }
+    }
+}
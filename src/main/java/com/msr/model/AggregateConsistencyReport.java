@@ -0,0 +1,36 @@
+package com.msr.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of comparing the stored site aggregates against a full recompute
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class AggregateConsistencyReport {
+    private int sitesChecked;
+
+    private boolean consistent;
+
+    private List<Mismatch> mismatches;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Mismatch {
+        private int siteId;
+
+        /* Recomputed from site_use */
+        private SiteAggregate expected;
+
+        /* Stored in site_aggregate, null when the row is missing */
+        private SiteAggregate actual;
+    }
+}
@@ -0,0 +1,36 @@
+package com.msr.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk site use upload: how many lines were written or rejected, and why the first ones were rejected
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class BulkIngestReport {
+    private long accepted;
+
+    private long rejected;
+
+    /* At most sites.bulk.max-errors, in the order they were found */
+    private List<LineError> errors;
+
+    private long elapsedMillis;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineError {
+        /* 1-based line number of the upload */
+        private long line;
+
+        private String message;
+    }
+}
@@ -0,0 +1,25 @@
+package com.msr.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Throughput of one bulk imported file
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class ImportReport {
+    private String source;
+
+    private long records;
+
+    private long elapsedMillis;
+
+    public long getRecordsPerSecond() {
+        return elapsedMillis == 0 ? records : records * 1000 / elapsedMillis;
+    }
+}
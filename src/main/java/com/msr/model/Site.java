@@ -12,6 +12,7 @@ import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Transient;
 import java.util.List;
 
@@ -40,11 +41,11 @@ public class Site {
 
     @JsonIgnore
     @JsonIgnoreProperties("site")
-    @OneToMany(mappedBy = "site", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "site", fetch = FetchType.LAZY)
+    @OrderBy("id")
     private List<SiteUse> siteUses;
 
     @Transient
     @JsonProperty("primary_type")
-    @JsonIgnoreProperties(value = {"hibernateLazyInitializer"})
     private UseType primaryType;
 }
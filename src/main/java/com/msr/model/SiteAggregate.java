@@ -0,0 +1,21 @@
+package com.msr.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Materialized total size and primary use type of a site, as stored in the site_aggregate table
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class SiteAggregate {
+    private int siteId;
+
+    private int totalSize;
+
+    private Integer primaryTypeId;
+}
@@ -0,0 +1,21 @@
+package com.msr.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The sites found for a batch of ids, in request order, and the requested ids that do not exist
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class SiteBatch {
+    private List<Site> sites;
+
+    private List<Integer> missing;
+}
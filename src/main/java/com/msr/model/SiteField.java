@@ -0,0 +1,84 @@
+package com.msr.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The fields of a site response that can be selected with fields=, by JSON name.
+ *
+ * Plain fields are site columns and can be read without touching site_use. Aggregated fields need the total size
+ * and primary type of the site.
+ */
+public enum SiteField {
+    ID("id", "id", Site::getId),
+    NAME("name", "name", Site::getName),
+    ADDRESS("address", "address", Site::getAddress),
+    CITY("city", "city", Site::getCity),
+    STATE("state", "state", Site::getState),
+    ZIPCODE("zipcode", "zipcode", Site::getZipcode),
+    TOTAL_SIZE("total_size", null, Site::getTotalSize),
+    PRIMARY_TYPE("primary_type", null, Site::getPrimaryType);
+
+    private final String jsonName;
+
+    /* Column of the site table, null for aggregated fields */
+    private final String column;
+
+    private final Function<Site, Object> getter;
+
+    SiteField(String jsonName, String column, Function<Site, Object> getter) {
+        this.jsonName = jsonName;
+        this.column = column;
+        this.getter = getter;
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean isAggregated() {
+        return column == null;
+    }
+
+    public Object valueOf(Site site) {
+        return getter.apply(site);
+    }
+
+    /**
+     * @param fields Comma separated JSON names, blanks around names are ignored.
+     * @return The named fields.
+     * @throws IllegalArgumentException When a name is unknown or no field is named.
+     */
+    public static Set<SiteField> parse(String fields) {
+        Set<SiteField> parsed = EnumSet.noneOf(SiteField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            parsed.add(forJsonName(trimmed));
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("no fields selected");
+        }
+        return parsed;
+    }
+
+    public static boolean anyAggregated(Set<SiteField> fields) {
+        return fields.stream().anyMatch(SiteField::isAggregated);
+    }
+
+    private static SiteField forJsonName(String jsonName) {
+        for (SiteField field : values()) {
+            if (field.jsonName.equals(jsonName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("unknown field " + jsonName);
+    }
+}
@@ -0,0 +1,93 @@
+package com.msr.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Portfolio statistics: site counts and total square footage overall, by state, by city and by primary use type,
+ * and the number of sites per size bucket
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class SiteStats {
+    /* Key of sites without a primary use type in byPrimaryType */
+    public static final String NO_PRIMARY_TYPE = "None";
+
+    /* Lower bounds of the size buckets; the last bucket is unbounded */
+    private static final long[] SIZE_BUCKET_BOUNDS = {0, 1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+
+    private long sites;
+
+    @JsonProperty("total_size")
+    private long totalSize;
+
+    @JsonProperty("by_state")
+    private Map<String, SiteTotals> byState;
+
+    /* Keyed by "city, state" */
+    @JsonProperty("by_city")
+    private Map<String, SiteTotals> byCity;
+
+    @JsonProperty("by_primary_type")
+    private Map<String, SiteTotals> byPrimaryType;
+
+    @JsonProperty("size_histogram")
+    private List<SizeBucket> sizeHistogram;
+
+    public static int sizeBucketCount() {
+        return SIZE_BUCKET_BOUNDS.length;
+    }
+
+    public static long sizeBucketMin(int bucket) {
+        return SIZE_BUCKET_BOUNDS[bucket];
+    }
+
+    /**
+     * @return The exclusive upper bound of the bucket, null for the last one.
+     */
+    public static Long sizeBucketMax(int bucket) {
+        return bucket + 1 < SIZE_BUCKET_BOUNDS.length ? SIZE_BUCKET_BOUNDS[bucket + 1] : null;
+    }
+
+    public static int sizeBucket(long size) {
+        int bucket = SIZE_BUCKET_BOUNDS.length - 1;
+        while (bucket > 0 && size < SIZE_BUCKET_BOUNDS[bucket]) {
+            bucket--;
+        }
+        return bucket;
+    }
+
+    public static String cityKey(String city, String state) {
+        return city + ", " + state;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SiteTotals {
+        private long sites;
+
+        @JsonProperty("total_size")
+        private long totalSize;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SizeBucket {
+        private long min;
+
+        /* Exclusive, null for the last bucket */
+        private Long max;
+
+        private long sites;
+    }
+}
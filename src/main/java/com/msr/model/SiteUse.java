@@ -1,22 +1,30 @@
 package com.msr.model;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.msr.data.UseTypeResolver;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Transient;
 
+/**
+ * A use of a site. The use type is stored as a plain id and resolved to the canonical {@link UseType} of the
+ * {@link com.msr.data.UseTypeDictionary} when loaded, so it is never a lazy proxy.
+ */
 @Data
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder(toBuilder = true)
+@EntityListeners(UseTypeResolver.class)
 public class SiteUse {
     @Id
     private int id;
@@ -29,8 +37,26 @@ public class SiteUse {
 
     private int sizeSqft;
 
-    @JsonIgnoreProperties(value = {"handler", "hibernateLazyInitializer"})
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name="use_type_id", nullable = false)
+    @Column(name = "use_type_id", nullable = false)
+    private int useTypeId;
+
+    @Transient
     private UseType useType;
+
+    public void setUseType(UseType useType) {
+        this.useType = useType;
+        if (useType != null) {
+            this.useTypeId = useType.getId();
+        }
+    }
+
+    public static class SiteUseBuilder {
+        public SiteUseBuilder useType(UseType useType) {
+            this.useType = useType;
+            if (useType != null) {
+                this.useTypeId = useType.getId();
+            }
+            return this;
+        }
+    }
 }
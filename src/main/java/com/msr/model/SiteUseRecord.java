@@ -0,0 +1,29 @@
+package com.msr.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Flat site use row as found in data/site_uses.json, referencing site and use type by id
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class SiteUseRecord {
+    private int id;
+
+    @JsonProperty("site_id")
+    private int siteId;
+
+    private String description;
+
+    @JsonProperty("size_sqft")
+    private int sizeSqft;
+
+    @JsonProperty("use_type_id")
+    private int useTypeId;
+}
@@ -0,0 +1,77 @@
+package com.msr.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts committed site changes to derive strong ETags without loading or serializing any site.
+ *
+ * Every {@link SitesChangedEvent} moves the dataset version forward. A site keeps the version of its own last change,
+ * so polling one site is not invalidated by writes to others. The tags include the startup time, so versions handed
+ * out before a restart never match again.
+ */
+@Component
+public class DatasetVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final AtomicLong version = new AtomicLong();
+
+    /* Version of the last change that may have touched every site */
+    private volatile long allSitesVersion;
+
+    private final Map<Integer, Long> siteVersions = new ConcurrentHashMap<>();
+
+    /**
+     * @return The ETag of any list of sites, changes with every write.
+     */
+    public String etag() {
+        return tag(version.get());
+    }
+
+    /**
+     * @return The ETag of one site, changes only with writes that may have touched it.
+     */
+    public String etag(int siteId) {
+        return tag(siteVersion(siteId));
+    }
+
+    /**
+     * @param etag A tag of this instance, of the dataset or of any site, taken earlier.
+     * @return Whether no write that may have touched the site was seen since the tag was taken.
+     */
+    public boolean unchangedSince(int siteId, String etag) {
+        String prefix = "\"" + epoch + "-";
+        if (etag == null || !etag.startsWith(prefix) || !etag.endsWith("\"") || etag.length() <= prefix.length() + 1) {
+            return false;
+        }
+        try {
+            return siteVersion(siteId) <= Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSitesChanged(SitesChangedEvent event) {
+        long next = version.incrementAndGet();
+        if (event.isAllSites()) {
+            allSitesVersion = next;
+            siteVersions.clear();
+        } else {
+            event.getSiteIds().forEach(siteId -> siteVersions.put(siteId, next));
+        }
+    }
+
+    private long siteVersion(int siteId) {
+        return Math.max(allSitesVersion, siteVersions.getOrDefault(siteId, 0L));
+    }
+
+    private String tag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+}
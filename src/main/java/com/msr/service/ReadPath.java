@@ -0,0 +1,13 @@
+package com.msr.service;
+
+/**
+ * Where {@link SiteService} gets total size and primary type of a site from, selected with sites.read-path
+ */
+public enum ReadPath {
+    /* Load every site use and aggregate in memory. */
+    JPA,
+    /* Look up the materialized site_aggregate rows. */
+    AGGREGATE,
+    /* Aggregate in SQL and map the flat rows without loading entities, see SiteDao. */
+    DAO
+}
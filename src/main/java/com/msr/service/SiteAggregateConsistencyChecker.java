@@ -0,0 +1,67 @@
+package com.msr.service;
+
+import com.msr.data.SiteAggregateDao;
+import com.msr.model.AggregateConsistencyReport;
+import com.msr.model.SiteAggregate;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the incrementally maintained site_aggregate rows against a full recompute from site_use
+ */
+@Log4j2
+@Service
+public class SiteAggregateConsistencyChecker {
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Transactional(readOnly = true)
+    public AggregateConsistencyReport check() {
+        List<SiteAggregate> expected = siteAggregateDao.recomputeAll();
+        Map<Integer, SiteAggregate> stored = siteAggregateDao.findAll().stream()
+                                                             .collect(Collectors.toMap(SiteAggregate::getSiteId,
+                                                                                       Function.identity()));
+
+        List<AggregateConsistencyReport.Mismatch> mismatches = new ArrayList<>();
+        for (SiteAggregate recomputed : expected) {
+            SiteAggregate actual = stored.remove(recomputed.getSiteId());
+            if (!recomputed.equals(actual)) {
+                mismatches.add(new AggregateConsistencyReport.Mismatch(recomputed.getSiteId(), recomputed, actual));
+            }
+        }
+        // rows left over belong to sites that no longer exist
+        stored.values().forEach(orphan -> mismatches.add(
+                new AggregateConsistencyReport.Mismatch(orphan.getSiteId(), null, orphan)));
+
+        if (!mismatches.isEmpty()) {
+            log.warn("{} of {} site aggregates are inconsistent", mismatches.size(), expected.size());
+        }
+
+        return AggregateConsistencyReport.builder()
+                                         .sitesChecked(expected.size())
+                                         .consistent(mismatches.isEmpty())
+                                         .mismatches(mismatches)
+                                         .build();
+    }
+
+    /**
+     * Replaces every stored aggregate with a full recompute.
+     */
+    @Transactional
+    public void repair() {
+        siteAggregateDao.rebuildAll();
+        eventPublisher.publishEvent(SitesChangedEvent.allUses());
+    }
+}
@@ -0,0 +1,33 @@
+package com.msr.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the bulk import at startup when sites.import.enabled is set. The files may be classpath: or file: resources.
+ */
+@Component
+@ConditionalOnProperty(name = "sites.import.enabled", havingValue = "true")
+public class SiteDataImportRunner implements ApplicationRunner {
+    @Autowired
+    private SiteDataImporter siteDataImporter;
+
+    @Value("${sites.import.use-types:classpath:data/use_types.json}")
+    private Resource useTypes;
+
+    @Value("${sites.import.sites:classpath:data/sites.json}")
+    private Resource sites;
+
+    @Value("${sites.import.site-uses:classpath:data/site_uses.json}")
+    private Resource siteUses;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        siteDataImporter.importAll(useTypes, sites, siteUses);
+    }
+}
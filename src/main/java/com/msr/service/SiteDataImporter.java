@@ -0,0 +1,120 @@
+package com.msr.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msr.data.BulkSiteWriter;
+import com.msr.data.SiteAggregateDao;
+import com.msr.data.UseTypeDictionary;
+import com.msr.model.ImportReport;
+import com.msr.model.Site;
+import com.msr.model.SiteUseRecord;
+import com.msr.model.UseType;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bulk loads files shaped like data/use_types.json, data/sites.json and data/site_uses.json.
+ *
+ * Records are bound one at a time from a streaming parser and written in batches of sites.import.chunk-size, each
+ * batch in its own transaction, so neither the file nor the table is ever held in memory.
+ */
+@Log4j2
+@Service
+public class SiteDataImporter {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BulkSiteWriter bulkSiteWriter;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Autowired
+    private UseTypeDictionary useTypeDictionary;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${sites.import.chunk-size:5000}")
+    private int chunkSize;
+
+    /* Minimum time between two progress log lines */
+    @Value("${sites.import.progress-interval-ms:2000}")
+    private long progressIntervalMillis;
+
+    /**
+     * Imports (inserts or replaces) use types, sites and site uses, in that order, then reloads the use type
+     * dictionary and rebuilds the site aggregates.
+     */
+    public List<ImportReport> importAll(Resource useTypes, Resource sites, Resource siteUses) throws IOException {
+        ImportReport useTypeReport = importFile(useTypes, UseType.class, bulkSiteWriter::upsertUseTypes);
+        useTypeDictionary.reload();
+        ImportReport siteReport = importFile(sites, Site.class, bulkSiteWriter::upsertSites);
+        ImportReport siteUseReport = importFile(siteUses, SiteUseRecord.class, bulkSiteWriter::upsertSiteUses);
+
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> siteAggregateDao.rebuildAll());
+        log.info("Rebuilt site aggregates in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        eventPublisher.publishEvent(SitesChangedEvent.all());
+
+        return Arrays.asList(useTypeReport, siteReport, siteUseReport);
+    }
+
+    <T> ImportReport importFile(Resource resource, Class<T> type, Consumer<List<T>> writer) throws IOException {
+        String source = resource.getDescription();
+        long start = System.nanoTime();
+        long lastProgress = start;
+        long records = 0;
+
+        try (InputStream in = resource.getInputStream();
+             MappingIterator<T> values = objectMapper.readerFor(type).readValues(in)) {
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (values.hasNextValue()) {
+                chunk.add(values.nextValue());
+                if (chunk.size() == chunkSize) {
+                    records += write(chunk, writer);
+
+                    long now = System.nanoTime();
+                    if (TimeUnit.NANOSECONDS.toMillis(now - lastProgress) >= progressIntervalMillis) {
+                        log.info("{}: {} records imported, {} records/s", source, records,
+                                 records * TimeUnit.SECONDS.toNanos(1) / (now - start));
+                        lastProgress = now;
+                    }
+                }
+            }
+            records += write(chunk, writer);
+        }
+
+        ImportReport report = new ImportReport(source, records,
+                                               TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("{}: imported {} records in {} ms ({} records/s)", source, report.getRecords(),
+                 report.getElapsedMillis(), report.getRecordsPerSecond());
+        return report;
+    }
+
+    private <T> int write(List<T> chunk, Consumer<List<T>> writer) {
+        int size = chunk.size();
+        if (size > 0) {
+            transactionTemplate.executeWithoutResult(status -> writer.accept(chunk));
+            chunk.clear();
+        }
+        return size;
+    }
+}
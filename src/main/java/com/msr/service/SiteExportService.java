@@ -0,0 +1,71 @@
+package com.msr.service;
+
+import com.msr.data.SiteDao;
+import com.msr.data.SiteRepository;
+import com.msr.model.Site;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Streams aggregated sites out of the database through a cursor, in chunks of sites.export.chunk-size, so memory
+ * use does not depend on the number of sites exported
+ */
+@Service
+public class SiteExportService {
+    @Autowired
+    private SiteService siteService;
+
+    @Autowired
+    private SiteRepository siteRepository;
+
+    @Autowired
+    private SiteDao siteDao;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${sites.export.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Hands every site, optionally in one state, to the consumer in id order as soon as it is aggregated.
+     */
+    @Transactional(readOnly = true)
+    public void exportSites(String state, Consumer<Site> consumer) {
+        if (siteService.getReadPath() == ReadPath.DAO) {
+            siteDao.stream(state, consumer);
+            return;
+        }
+
+        try (Stream<Site> sites = state == null
+                ? siteRepository.streamAllByOrderByIdAsc()
+                : siteRepository.streamByStateOrderByIdAsc(state)) {
+            List<Site> chunk = new ArrayList<>(chunkSize);
+            Iterator<Site> iterator = sites.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize) {
+                    flush(chunk, consumer);
+                }
+            }
+            flush(chunk, consumer);
+        }
+    }
+
+    private void flush(List<Site> chunk, Consumer<Site> consumer) {
+        siteService.aggregateChunk(chunk).forEach(consumer);
+        chunk.clear();
+        // drop the exported sites from the persistence context so it does not grow with the export
+        entityManager.clear();
+    }
+}
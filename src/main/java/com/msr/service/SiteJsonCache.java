@@ -0,0 +1,117 @@
+package com.msr.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.msr.model.Site;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded JSON of single sites, kept so that repeated reads of an unchanged site skip Jackson.
+ *
+ * Entries are keyed by site id and are only served while their {@link DatasetVersion} tag is the current tag of the
+ * site, so a write invalidates exactly the sites it touched. Callers pass the tag they took before loading the site;
+ * a site that may have changed since then is serialized but not cached, so cached bytes are never older than the
+ * tag they are stored under. Hits and misses are exported as cache.* meters tagged cache=sites.json.
+ */
+@Component
+public class SiteJsonCache implements MeterBinder {
+
+    private final ObjectWriter writer;
+
+    private final DatasetVersion datasetVersion;
+
+    private final Cache<Integer, Entry> entries;
+
+    @Autowired
+    public SiteJsonCache(ObjectMapper objectMapper, DatasetVersion datasetVersion,
+                         @Value("${sites.json-cache.max-entries:100000}") long maxEntries) {
+        this.writer = objectMapper.writerFor(Site.class);
+        this.datasetVersion = datasetVersion;
+        this.entries = CacheBuilder.newBuilder().maximumSize(maxEntries).recordStats().build();
+    }
+
+    /**
+     * @param loadedAt A {@link DatasetVersion} tag taken before the site was loaded, null when unknown.
+     * @return The JSON of the site, serialized only when it is not cached at the site's current version.
+     */
+    public byte[] json(Site site, String loadedAt) {
+        return entry(site, loadedAt).json;
+    }
+
+    /**
+     * @return The gzipped JSON of the site, compressed once per cached version.
+     */
+    public byte[] gzip(Site site, String loadedAt) {
+        Entry entry = entry(site, loadedAt);
+        byte[] gzip = entry.gzip;
+        if (gzip == null) {
+            gzip = gzip(entry.json);
+            entry.gzip = gzip;
+        }
+        return gzip;
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, entries, "sites.json");
+    }
+
+    private Entry entry(Site site, String loadedAt) {
+        String tag = datasetVersion.etag(site.getId());
+        Entry entry = entries.getIfPresent(site.getId());
+        if (entry == null || !entry.tag.equals(tag)) {
+            entry = new Entry(tag, serialize(site));
+            if (datasetVersion.unchangedSince(site.getId(), loadedAt)) {
+                entries.put(site.getId(), entry);
+            }
+        }
+        return entry;
+    }
+
+    private byte[] serialize(Site site) {
+        try {
+            return writer.writeValueAsBytes(site);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class Entry {
+        private final String tag;
+        private final byte[] json;
+        /* Compressed on first request, a racing thread at worst compresses twice */
+        private volatile byte[] gzip;
+
+        private Entry(String tag, byte[] json) {
+            this.tag = tag;
+            this.json = json;
+        }
+    }
+}
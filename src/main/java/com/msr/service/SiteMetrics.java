@@ -0,0 +1,68 @@
+package com.msr.service;
+
+import com.msr.model.Site;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Meters of the site read path, all tagged with the calling operation:
+ *
+ * sites.rows.fetched     - sites returned per call
+ * sites.uses.aggregated  - site uses aggregated in memory per call
+ * sites.aggregation      - time spent aggregating in memory
+ *
+ * Together with the sites.service timers of SiteService and http.server.requests they split a slow call into
+ * database, aggregation and serialization time.
+ */
+@Component
+public class SiteMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public SiteMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordFetched(String operation, int rows) {
+        DistributionSummary.builder("sites.rows.fetched")
+                           .description("Sites returned per call")
+                           .baseUnit("rows")
+                           .tag("operation", operation)
+                           .register(meterRegistry)
+                           .record(rows);
+    }
+
+    /**
+     * Applies the in-memory aggregation to each site and records its time and the number of site uses it read.
+     */
+    public List<Site> aggregate(String operation, List<Site> sites, UnaryOperator<Site> aggregator) {
+        long start = System.nanoTime();
+        int uses = 0;
+        List<Site> aggregated = new ArrayList<>(sites.size());
+        for (Site site : sites) {
+            uses += site.getSiteUses() == null ? 0 : site.getSiteUses().size();
+            aggregated.add(aggregator.apply(site));
+        }
+        Timer.builder("sites.aggregation")
+             .description("Time spent aggregating site uses in memory")
+             .tag("operation", operation)
+             .register(meterRegistry)
+             .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("sites.uses.aggregated")
+                           .description("Site uses aggregated in memory per call")
+                           .baseUnit("rows")
+                           .tag("operation", operation)
+                           .register(meterRegistry)
+                           .record(uses);
+        return aggregated;
+    }
+}
@@ -0,0 +1,188 @@
+package com.msr.service;
+
+import com.google.common.primitives.Ints;
+import com.msr.config.SitesExecutorConfig;
+import com.msr.data.SiteDao;
+import com.msr.data.SiteTextIndex;
+import com.msr.model.Site;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search over site name, address and city through a {@link SiteTextIndex}. The index is built on first use
+ * and then kept current in place on the read models executor: after a write only the text columns of the changed
+ * sites are read again and reindexed, and writes that only touch site uses are skipped. Writers never wait for it.
+ */
+@Log4j2
+@Service
+public class SiteSearchService {
+    @Autowired
+    private SiteDao siteDao;
+
+    @Autowired
+    private SiteMetrics siteMetrics;
+
+    @Autowired
+    @Qualifier(SitesExecutorConfig.READ_MODELS_EXECUTOR)
+    private Executor readModelsExecutor;
+
+    @Value("${sites.search.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${sites.search.max-limit:100}")
+    private int maxLimit;
+
+    private volatile SiteTextIndex index;
+
+    /* Set once the first build starts; changes before that are in the build anyway */
+    private volatile boolean indexing;
+
+    /* Sites changed since the last update, and whether any site may have */
+    private final Set<Integer> pendingIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean pendingAll = new AtomicBoolean();
+
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+
+    /**
+     * @param limit Number of results, default sites.search.default-limit.
+     * @return The best matching sites, best first, loaded fresh from the database.
+     * @throws IllegalArgumentException When the query has no terms or limit is outside 1..sites.search.max-limit.
+     */
+    @Timed(SiteService.TIMER)
+    public List<Site> search(String query, Integer limit) {
+        if (limit != null && (limit < 1 || limit > maxLimit)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        int[] ids = index().search(query, limit == null ? defaultLimit : limit);
+
+        Map<Integer, Site> byId = siteDao.findByIds(Ints.asList(ids)).stream()
+                                         .collect(Collectors.toMap(Site::getId, Function.identity()));
+        List<Site> sites = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            // a site deleted since the index was read is left out
+            Site site = byId.get(id);
+            if (site != null) {
+                sites.add(site);
+            }
+        }
+
+        siteMetrics.recordFetched("search", sites.size());
+        return sites;
+    }
+
+    /**
+     * @return The footprint of the index, empty when nothing has searched yet.
+     */
+    public Map<String, Long> footprint() {
+        SiteTextIndex current = index;
+        return current == null ? Collections.emptyMap() : current.footprint();
+    }
+
+    /**
+     * Records the change for the read models executor to reindex. Nothing is recorded before the index is first
+     * built, nor for writes to site uses only, as the index holds no aggregates.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSitesChanged(SitesChangedEvent event) {
+        if (!indexing || event.isUsesOnly()) {
+            return;
+        }
+        if (event.isAllSites()) {
+            pendingAll.set(true);
+        } else {
+            pendingIds.addAll(event.getSiteIds());
+        }
+        scheduleUpdate();
+    }
+
+    private void scheduleUpdate() {
+        if (updateScheduled.compareAndSet(false, true)) {
+            readModelsExecutor.execute(this::update);
+        }
+    }
+
+    /*
+     * Runs on the single read models thread only, so updates never overlap. A change to all sites builds a new index
+     * aside while searches keep using the current one.
+     */
+    private void update() {
+        updateScheduled.set(false);
+        SiteTextIndex current = index;
+        if (current == null) {
+            // the first build is still reading, it schedules the changes it may have missed
+            return;
+        }
+        boolean all = pendingAll.getAndSet(false);
+        Set<Integer> changedIds = new HashSet<>(pendingIds);
+        pendingIds.removeAll(changedIds);
+
+        try {
+            if (all) {
+                index = readIndex();
+            } else if (!changedIds.isEmpty()) {
+                List<Site> changed = siteDao.findTextByIds(changedIds);
+                Set<Integer> removed = new HashSet<>(changedIds);
+                changed.forEach(site -> removed.remove(site.getId()));
+                current.update(changed, removed);
+            }
+        } catch (RuntimeException e) {
+            // left pending for the next change to try again
+            pendingIds.addAll(changedIds);
+            if (all) {
+                pendingAll.set(true);
+            }
+            log.warn("Could not update the site search index", e);
+        }
+    }
+
+    private SiteTextIndex index() {
+        SiteTextIndex current = index;
+        return current != null ? current : build();
+    }
+
+    /*
+     * Changes are recorded from the moment building starts, so a change committed while building is applied right
+     * after, whether or not the build already saw it.
+     */
+    private synchronized SiteTextIndex build() {
+        if (index != null) {
+            return index;
+        }
+        indexing = true;
+
+        SiteTextIndex built = readIndex();
+        index = built;
+        if (pendingAll.get() || !pendingIds.isEmpty()) {
+            scheduleUpdate();
+        }
+        return built;
+    }
+
+    private SiteTextIndex readIndex() {
+        long start = System.currentTimeMillis();
+        List<Site> sites = new ArrayList<>();
+        siteDao.streamText(sites::add);
+        SiteTextIndex built = SiteTextIndex.of(sites);
+
+        log.info("Built site search index of {} sites in {} ms", built.size(), System.currentTimeMillis() - start);
+        return built;
+    }
+}
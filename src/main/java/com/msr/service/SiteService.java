@@ -1,41 +1,384 @@
 package com.msr.service;
 
+import com.msr.data.SiteAggregateDao;
+import com.msr.data.SiteDao;
 import com.msr.data.SiteRepository;
+import com.msr.data.SiteSnapshot;
+import com.msr.data.UseTypeRepository;
 import com.msr.model.Site;
+import com.msr.model.SiteAggregate;
+import com.msr.model.SiteBatch;
+import com.msr.model.SiteField;
+import com.msr.model.SitePage;
 import com.msr.model.SiteUse;
 import com.msr.model.UseType;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class SiteService {
+	/* Name of the timers of the public read methods, tagged with class and method */
+	static final String TIMER = "sites.service";
+
 	@Autowired
 	private SiteRepository siteRepository;
 
+	@Autowired
+	private SiteAggregateDao siteAggregateDao;
+
+	@Autowired
+	private SiteDao siteDao;
+
+	@Autowired
+	private SiteSnapshotService siteSnapshotService;
+
+	@Autowired
+	private UseTypeRepository useTypeRepository;
+
+	@Autowired
+	private SiteMetrics siteMetrics;
+
+	@Value("${sites.read-path:JPA}")
+	private ReadPath readPath;
+
+	@Value("${sites.page.default-limit:100}")
+	private int defaultPageLimit;
+
+	@Value("${sites.page.max-limit:1000}")
+	private int maxPageLimit;
+
+	@Value("${sites.batch.max-ids:500}")
+	private int maxBatchIds;
+
+	@Value("${sites.top.default-n:10}")
+	private int defaultTopN;
+
+	@Value("${sites.top.max-n:1000}")
+	private int maxTopN;
+
+	@Timed(TIMER)
 	public Optional<Site> getSiteById(int id) {
-		Optional<Site> site = siteRepository.findById(id);
+		Optional<Site> site;
+		if (readPath == ReadPath.DAO) {
+			site = siteDao.findById(id);
+		} else if (readPath == ReadPath.AGGREGATE) {
+			site = siteRepository.findSiteById(id).map(
+					s -> applyAggregate(s, siteAggregateDao.findBySiteId(id).orElse(null),
+					                    typeId -> useTypeRepository.lookup(typeId).orElse(null)));
+		} else {
+			site = siteRepository.findById(id).map(
+					s -> siteMetrics.aggregate("getSiteById", Collections.singletonList(s), this::aggregateSites).get(0));
+		}
 
-		return site.map(this::aggregateSites);
+		siteMetrics.recordFetched("getSiteById", site.isPresent() ? 1 : 0);
+		return site;
 	}
 
+	@Timed(TIMER)
 	public List<Site> getAllSites() {
-		List<Site> sites = siteRepository.findAll();
+		List<Site> sites;
+		if (readPath == ReadPath.DAO) {
+			sites = siteDao.findAll();
+		} else if (readPath == ReadPath.AGGREGATE) {
+			sites = applyAggregates(siteRepository.findAllByOrderByIdAsc(), siteAggregateDao.findAll());
+		} else {
+			sites = siteMetrics.aggregate("getAllSites", siteRepository.findAll(), this::aggregateSites);
+		}
 
-		return sites.stream().map(this::aggregateSites).collect(Collectors.toList());
+		siteMetrics.recordFetched("getAllSites", sites.size());
+		return sites;
 	}
 
+	@Timed(TIMER)
 	public List<Site> getSitesByState(String state) {
-		List<Site> sites = siteRepository.findByState(state);
-		return sites.stream().map(this::aggregateSites).collect(Collectors.toList());
+		List<Site> sites;
+		Optional<SiteSnapshot> snapshot = stateSnapshot();
+		if (snapshot.isPresent()) {
+			sites = snapshot.get().findByState(state);
+		} else if (readPath == ReadPath.DAO) {
+			sites = siteDao.findByState(state);
+		} else if (readPath == ReadPath.AGGREGATE) {
+			sites = applyAggregates(siteRepository.findByStateOrderByIdAsc(state), siteAggregateDao.findByState(state));
+		} else {
+			sites = siteMetrics.aggregate("getSitesByState", siteRepository.findByState(state), this::aggregateSites);
+		}
+
+		siteMetrics.recordFetched("getSitesByState", sites.size());
+		return sites;
+	}
+
+	/**
+	 * Finds sites by zipcode and city patterns, each a value or a prefix followed by *, through the prefix indexes of
+	 * the site snapshot, whatever sites.snapshot.serve-state-queries says. While the snapshot is built or catches up
+	 * with a write, the matching sites are aggregated in the database instead.
+	 *
+	 * @throws IllegalArgumentException When neither pattern is given or * is not at the end of one.
+	 */
+	@Timed(TIMER)
+	public List<Site> getSitesByPattern(String zipcode, String city, String state) {
+		if (zipcode == null && city == null) {
+			throw new IllegalArgumentException("zipcode or city pattern required");
+		}
+		Optional<SiteSnapshot> snapshot = siteSnapshotService.upToDate();
+		List<Site> sites = snapshot.isPresent()
+				? snapshot.get().findByPattern(zipcode, city, state)
+				: siteDao.findByPattern(zipcode == null ? null : SiteDao.likePattern(zipcode),
+				                        city == null ? null : SiteDao.likePattern(city.toLowerCase(Locale.ROOT)),
+				                        state);
+
+		siteMetrics.recordFetched("getSitesByPattern", sites.size());
+		return sites;
+	}
+
+	/**
+	 * Filters sites on their aggregated total size and primary use type through the size orders of the site snapshot,
+	 * so no site is aggregated per request. The snapshot is used whatever sites.snapshot.serve-state-queries says, but
+	 * while it is built or catches up with a write the stored site aggregates are filtered instead.
+	 *
+	 * @param primaryType Optional primary use type name, ignoring case.
+	 * @throws IllegalArgumentException When minSize is above maxSize.
+	 */
+	@Timed(TIMER)
+	public List<Site> getSitesBySize(Integer minSize, Integer maxSize, String primaryType, String state) {
+		if (minSize != null && maxSize != null && minSize > maxSize) {
+			throw new IllegalArgumentException("minSize must not be above maxSize");
+		}
+		Optional<SiteSnapshot> snapshot = siteSnapshotService.upToDate();
+		List<Site> sites = snapshot.isPresent()
+				? snapshot.get().findBySize(minSize, maxSize, primaryType, state)
+				: siteDao.findBySize(minSize, maxSize, primaryType, state);
+
+		siteMetrics.recordFetched("getSitesBySize", sites.size());
+		return sites;
+	}
+
+	/**
+	 * Returns the largest sites by total size from the size orders of the site snapshot, reading only as many rows as
+	 * are returned whichever filters are given. The snapshot is used whatever sites.snapshot.serve-state-queries says,
+	 * but while it is built or catches up with a write the stored site aggregates are read instead.
+	 *
+	 * @param n           Number of sites, default sites.top.default-n.
+	 * @param primaryType Optional primary use type name, ignoring case.
+	 * @throws IllegalArgumentException When n is outside 1..sites.top.max-n.
+	 */
+	@Timed(TIMER)
+	public List<Site> getTopSites(Integer n, String state, String primaryType) {
+		if (n != null && (n < 1 || n > maxTopN)) {
+			throw new IllegalArgumentException("n must be between 1 and " + maxTopN);
+		}
+		int top = n == null ? defaultTopN : n;
+		Optional<SiteSnapshot> snapshot = siteSnapshotService.upToDate();
+		List<Site> sites = snapshot.isPresent()
+				? snapshot.get().findTop(top, state, primaryType)
+				: siteDao.findTop(top, state, primaryType);
+
+		siteMetrics.recordFetched("getTopSites", sites.size());
+		return sites;
+	}
+
+	/**
+	 * Returns only the selected fields of all sites, optionally in one state. Without total_size and primary_type
+	 * only the selected site columns are queried and nothing is aggregated, whatever the read path.
+	 *
+	 * @return One map per site from JSON name to value, ordered by id.
+	 */
+	@Timed(TIMER)
+	public List<Map<String, Object>> getSiteFields(String state, Set<SiteField> fields) {
+		List<Map<String, Object>> sites;
+		Optional<SiteSnapshot> snapshot = state == null ? Optional.empty() : stateSnapshot();
+		if (SiteField.anyAggregated(fields)) {
+			sites = project(state == null ? getAllSites() : getSitesByState(state), fields);
+		} else if (snapshot.isPresent()) {
+			sites = project(snapshot.get().findByState(state), fields);
+		} else {
+			sites = siteDao.findFields(fields, state);
+		}
+
+		siteMetrics.recordFetched("getSiteFields", sites.size());
+		return sites;
+	}
+
+	/**
+	 * Returns only the selected fields of the site, see {@link #getSiteFields(String, Set)}.
+	 */
+	@Timed(TIMER)
+	public Optional<Map<String, Object>> getSiteFieldsById(int id, Set<SiteField> fields) {
+		Optional<Map<String, Object>> site;
+		if (SiteField.anyAggregated(fields)) {
+			site = getSiteById(id).map(s -> project(s, fields));
+		} else {
+			site = siteDao.findFieldsById(fields, id);
+		}
+
+		siteMetrics.recordFetched("getSiteFieldsById", site.isPresent() ? 1 : 0);
+		return site;
+	}
+
+	/**
+	 * @return The selected fields of each site, by JSON name in field order.
+	 */
+	public static List<Map<String, Object>> project(List<Site> sites, Set<SiteField> fields) {
+		return sites.stream().map(site -> project(site, fields)).collect(Collectors.toList());
+	}
+
+	private static Map<String, Object> project(Site site, Set<SiteField> fields) {
+		Map<String, Object> projected = new LinkedHashMap<>();
+		fields.forEach(field -> projected.put(field.getJsonName(), field.valueOf(site)));
+		return projected;
+	}
+
+	/**
+	 * Resolves many ids with a fixed number of statements, independent of how many ids are requested.
+	 *
+	 * @return The sites found, in the order of their first request, and the ids that do not exist.
+	 * @throws IllegalArgumentException When an id is null or more than sites.batch.max-ids distinct ids are requested.
+	 */
+	@Timed(TIMER)
+	public SiteBatch getSitesByIds(Collection<Integer> ids) {
+		Set<Integer> requested = new LinkedHashSet<>(ids);
+		if (requested.contains(null)) {
+			throw new IllegalArgumentException("ids must not be null");
+		}
+		if (requested.size() > maxBatchIds) {
+			throw new IllegalArgumentException("at most " + maxBatchIds + " ids per batch");
+		}
+		if (requested.isEmpty()) {
+			return new SiteBatch(Collections.emptyList(), Collections.emptyList());
+		}
+
+		List<Site> sites;
+		if (readPath == ReadPath.DAO) {
+			sites = siteDao.findByIds(requested);
+		} else if (readPath == ReadPath.AGGREGATE) {
+			sites = applyAggregates(siteRepository.findAllById(requested),
+			                        new ArrayList<>(siteAggregateDao.findBySiteIds(requested).values()));
+		} else {
+			sites = siteMetrics.aggregate("getSitesByIds", siteRepository.findWithUsesByIdIn(requested),
+			                              this::aggregateSites);
+		}
+
+		Map<Integer, Site> sitesById = sites.stream().collect(Collectors.toMap(Site::getId, Function.identity()));
+		List<Site> found = new ArrayList<>(sitesById.size());
+		List<Integer> missing = new ArrayList<>();
+		for (Integer id : requested) {
+			Site site = sitesById.get(id);
+			if (site == null) {
+				missing.add(id);
+			} else {
+				found.add(site);
+			}
+		}
+
+		siteMetrics.recordFetched("getSitesByIds", found.size());
+		return new SiteBatch(found, missing);
+	}
+
+	/**
+	 * Returns the page of sites after the cursor, seeking on the primary key so every page costs the same.
+	 *
+	 * @param state  Optional state filter.
+	 * @param cursor The next cursor of the previous page, null for the first page.
+	 * @param limit  Page size, defaults to sites.page.default-limit and is capped at sites.page.max-limit.
+	 * @throws IllegalArgumentException When the cursor or the limit is invalid.
+	 */
+	@Timed(TIMER)
+	public SitePage getSitesPage(String state, String cursor, Integer limit) {
+		if (limit != null && limit < 1) {
+			throw new IllegalArgumentException("limit must be positive");
+		}
+		int pageSize = Math.min(limit == null ? defaultPageLimit : limit, maxPageLimit);
+		int afterId = cursor == null ? Integer.MIN_VALUE : SiteCursor.decode(cursor);
+
+		// fetch one extra row to find out whether there is a next page
+		List<Site> sites;
+		if (readPath == ReadPath.DAO) {
+			sites = siteDao.findPage(state, afterId, pageSize + 1);
+		} else {
+			PageRequest seek = PageRequest.of(0, pageSize + 1);
+			sites = state == null
+					? siteRepository.findByIdGreaterThanOrderByIdAsc(afterId, seek)
+					: siteRepository.findByStateAndIdGreaterThanOrderByIdAsc(state, afterId, seek);
+		}
+
+		boolean hasNext = sites.size() > pageSize;
+		if (hasNext) {
+			sites = sites.subList(0, pageSize);
+		}
+
+		if (readPath != ReadPath.DAO) {
+			sites = aggregateChunk(sites);
+		}
+
+		siteMetrics.recordFetched("getSitesPage", sites.size());
+		String next = hasNext ? SiteCursor.encode(sites.get(sites.size() - 1).getId()) : null;
+		return new SitePage(sites, next);
+	}
+
+	/* The snapshot, when it serves state queries and is up to date */
+	private Optional<SiteSnapshot> stateSnapshot() {
+		return siteSnapshotService.isServingStateQueries() ? siteSnapshotService.upToDate() : Optional.empty();
+	}
+
+	ReadPath getReadPath() {
+		return readPath;
+	}
+
+	/**
+	 * Aggregates a bounded chunk of sites loaded without their uses, with a fixed number of statements.
+	 * Not used on the DAO path, which aggregates in the query.
+	 */
+	List<Site> aggregateChunk(List<Site> sites) {
+		if (sites.isEmpty()) {
+			return sites;
+		}
+		List<Integer> ids = sites.stream().map(Site::getId).collect(Collectors.toList());
+
+		if (readPath == ReadPath.AGGREGATE) {
+			return applyAggregates(sites, new ArrayList<>(siteAggregateDao.findBySiteIds(ids).values()));
+		}
+		// loads the site uses of the whole chunk in a single statement
+		return siteMetrics.aggregate("aggregateChunk", siteRepository.findWithUsesByIdIn(ids), this::aggregateSites);
+	}
+
+	private List<Site> applyAggregates(List<Site> sites, List<SiteAggregate> siteAggregates) {
+		Map<Integer, SiteAggregate> aggregates = siteAggregates.stream().collect(
+				Collectors.toMap(SiteAggregate::getSiteId, Function.identity()));
+		Map<Integer, UseType> useTypes = useTypeRepository.lookupAll(
+				siteAggregates.stream().map(SiteAggregate::getPrimaryTypeId).filter(Objects::nonNull)
+				              .collect(Collectors.toSet()))
+				.stream().collect(Collectors.toMap(UseType::getId, Function.identity()));
+
+		sites.forEach(site -> applyAggregate(site, aggregates.get(site.getId()), useTypes::get));
+		return sites;
+	}
+
+	private Site applyAggregate(Site site, SiteAggregate aggregate, Function<Integer, UseType> useTypes) {
+		site.setTotalSize(aggregate == null ? 0 : aggregate.getTotalSize());
+		site.setPrimaryType(aggregate == null || aggregate.getPrimaryTypeId() == null
+				? null : useTypes.apply(aggregate.getPrimaryTypeId()));
+		return site;
 	}
 
-	private Site aggregateSites(Site ste) {
+	/* Package-private for the aggregation benchmark */
+	Site aggregateSites(Site ste) {
 		Map<UseType, Integer> useTypeSizeMap = new HashMap<>();
 
 		int totalSize = 0;
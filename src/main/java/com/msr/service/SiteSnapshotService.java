@@ -0,0 +1,160 @@
+package com.msr.service;
+
+import com.msr.config.SitesExecutorConfig;
+import com.msr.data.SiteDao;
+import com.msr.data.SiteSnapshot;
+import com.msr.model.Site;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the current {@link SiteSnapshot}, replaced as a whole and never modified, so readers see one consistent
+ * version without locking.
+ *
+ * Neither readers nor writers ever wait for the snapshot. It is built on the read models executor when first asked
+ * for, and after writes only the changed sites are read again there and merged into the next snapshot; changes that
+ * arrive meanwhile are coalesced into one catch-up. While the snapshot is behind, {@link #upToDate()} is empty and
+ * callers read the database instead, so no response is tagged with a version the snapshot has not reached.
+ */
+@Log4j2
+@Service
+public class SiteSnapshotService {
+    @Autowired
+    private SiteDao siteDao;
+
+    @Autowired
+    @Qualifier(SitesExecutorConfig.READ_MODELS_EXECUTOR)
+    private Executor readModelsExecutor;
+
+    /*
+     * Serve ?state= queries from the snapshot too. Pattern, size and top queries use it whenever it is up to date,
+     * whatever this says; it only decides whether state queries do and whether the snapshot is built at startup.
+     */
+    @Value("${sites.snapshot.serve-state-queries:false}")
+    private boolean servingStateQueries;
+
+    /* Changes seen so far; the snapshot is up to date when its version matches */
+    private final AtomicLong changes = new AtomicLong();
+
+    /* Sites changed since the last catch-up, added before changes is counted up */
+    private final Set<Integer> pendingIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean pendingAll = new AtomicBoolean();
+
+    private final AtomicBoolean catchUpScheduled = new AtomicBoolean();
+
+    private volatile SiteSnapshot snapshot;
+
+    public boolean isServingStateQueries() {
+        return servingStateQueries;
+    }
+
+    /**
+     * @return The snapshot if it has seen every change so far, empty while it is built or catches up.
+     */
+    public Optional<SiteSnapshot> upToDate() {
+        SiteSnapshot current = snapshot;
+        if (current != null && current.getVersion() == changes.get()) {
+            return Optional.of(current);
+        }
+        scheduleCatchUp();
+        return Optional.empty();
+    }
+
+    /**
+     * @return The current snapshot, or null when nothing has asked for one yet.
+     */
+    public SiteSnapshot peek() {
+        return snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (servingStateQueries) {
+            scheduleCatchUp();
+        }
+    }
+
+    /**
+     * Only records the change. Writers never pay for the snapshot; a snapshot nobody asked for is not built.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSitesChanged(SitesChangedEvent event) {
+        if (event.isAllSites()) {
+            pendingAll.set(true);
+        } else {
+            pendingIds.addAll(event.getSiteIds());
+        }
+        changes.incrementAndGet();
+        if (snapshot != null) {
+            scheduleCatchUp();
+        }
+    }
+
+    private void scheduleCatchUp() {
+        if (catchUpScheduled.compareAndSet(false, true)) {
+            readModelsExecutor.execute(this::catchUp);
+        }
+    }
+
+    /*
+     * Runs on the single read models thread only. The version is read before the pending changes are taken, so every
+     * change it counts is applied. A change taken along before it was counted is read fresh all the same, as it had
+     * committed, and its own catch-up finds nothing left to read.
+     */
+    private void catchUp() {
+        catchUpScheduled.set(false);
+        long version = changes.get();
+        SiteSnapshot current = snapshot;
+        if (current != null && current.getVersion() == version) {
+            return;
+        }
+        boolean all = pendingAll.getAndSet(false);
+        Set<Integer> changedIds = new HashSet<>(pendingIds);
+        pendingIds.removeAll(changedIds);
+
+        try {
+            long start = System.currentTimeMillis();
+            if (current == null || all) {
+                List<Site> sites = new ArrayList<>();
+                siteDao.stream(null, sites::add);
+                snapshot = SiteSnapshot.of(version, sites);
+                log.info("Built site snapshot of {} sites (version {}) in {} ms", snapshot.size(), version,
+                         System.currentTimeMillis() - start);
+            } else {
+                snapshot = current.with(version, siteDao.findByIds(changedIds), changedIds);
+                log.debug("Updated {} sites of the site snapshot (version {}) in {} ms", changedIds.size(), version,
+                          System.currentTimeMillis() - start);
+            }
+        } catch (RuntimeException e) {
+            // left pending for the next change or read to try again
+            pendingIds.addAll(changedIds);
+            if (all) {
+                pendingAll.set(true);
+            }
+            log.warn("Could not bring the site snapshot to version {}", version, e);
+            return;
+        }
+
+        // changes that came in while the first snapshot was built scheduled nothing
+        if (changes.get() != version) {
+            scheduleCatchUp();
+        }
+    }
+}
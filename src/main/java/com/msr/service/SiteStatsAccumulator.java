@@ -0,0 +1,86 @@
+package com.msr.service;
+
+import com.msr.model.Site;
+import com.msr.model.SiteStats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+
+/**
+ * Mutable partial {@link SiteStats} of one partition of sites.
+ *
+ * Each partition of a parallel reduction gets its own accumulator and {@link #combine} only reads the other one, so
+ * partial results can be merged in any order without sharing state.
+ */
+final class SiteStatsAccumulator {
+
+    private long sites;
+    private long totalSize;
+
+    /* Values are {sites, total size} */
+    private final Map<String, long[]> byState = new HashMap<>();
+    private final Map<String, long[]> byCity = new HashMap<>();
+    private final Map<String, long[]> byPrimaryType = new HashMap<>();
+
+    private final long[] sizeHistogram = new long[SiteStats.sizeBucketCount()];
+
+    static Collector<Site, SiteStatsAccumulator, SiteStats> collector() {
+        return Collector.of(SiteStatsAccumulator::new, SiteStatsAccumulator::accept, SiteStatsAccumulator::combine,
+                            SiteStatsAccumulator::toStats);
+    }
+
+    void accept(Site site) {
+        long size = site.getTotalSize();
+        sites++;
+        totalSize += size;
+        add(byState, site.getState(), 1, size);
+        add(byCity, SiteStats.cityKey(site.getCity(), site.getState()), 1, size);
+        add(byPrimaryType, site.getPrimaryType() == null ? SiteStats.NO_PRIMARY_TYPE : site.getPrimaryType().getName(),
+            1, size);
+        sizeHistogram[SiteStats.sizeBucket(size)]++;
+    }
+
+    SiteStatsAccumulator combine(SiteStatsAccumulator other) {
+        sites += other.sites;
+        totalSize += other.totalSize;
+        other.byState.forEach((key, totals) -> add(byState, key, totals[0], totals[1]));
+        other.byCity.forEach((key, totals) -> add(byCity, key, totals[0], totals[1]));
+        other.byPrimaryType.forEach((key, totals) -> add(byPrimaryType, key, totals[0], totals[1]));
+        for (int bucket = 0; bucket < sizeHistogram.length; bucket++) {
+            sizeHistogram[bucket] += other.sizeHistogram[bucket];
+        }
+        return this;
+    }
+
+    SiteStats toStats() {
+        List<SiteStats.SizeBucket> buckets = new ArrayList<>(sizeHistogram.length);
+        for (int bucket = 0; bucket < sizeHistogram.length; bucket++) {
+            buckets.add(new SiteStats.SizeBucket(SiteStats.sizeBucketMin(bucket), SiteStats.sizeBucketMax(bucket),
+                                                 sizeHistogram[bucket]));
+        }
+        return SiteStats.builder()
+                        .sites(sites)
+                        .totalSize(totalSize)
+                        .byState(toTotals(byState))
+                        .byCity(toTotals(byCity))
+                        .byPrimaryType(toTotals(byPrimaryType))
+                        .sizeHistogram(buckets)
+                        .build();
+    }
+
+    private static void add(Map<String, long[]> totals, String key, long sites, long size) {
+        long[] current = totals.computeIfAbsent(key, k -> new long[2]);
+        current[0] += sites;
+        current[1] += size;
+    }
+
+    private static Map<String, SiteStats.SiteTotals> toTotals(Map<String, long[]> totals) {
+        Map<String, SiteStats.SiteTotals> sorted = new TreeMap<>();
+        totals.forEach((key, value) -> sorted.put(key, new SiteStats.SiteTotals(value[0], value[1])));
+        return sorted;
+    }
+}
@@ -0,0 +1,41 @@
+package com.msr.service;
+
+import com.msr.data.SiteStatsDao;
+import com.msr.model.Site;
+import com.msr.model.SiteStats;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class SiteStatsService {
+    @Autowired
+    private SiteService siteService;
+
+    @Autowired
+    private SiteStatsDao siteStatsDao;
+
+    @Value("${sites.stats.source:MEMORY}")
+    private StatsSource source;
+
+    /* Smaller inputs are reduced on the calling thread */
+    @Value("${sites.stats.parallel-threshold:10000}")
+    private int parallelThreshold;
+
+    @Timed(SiteService.TIMER)
+    public SiteStats getStats() {
+        return source == StatsSource.SQL ? siteStatsDao.getStats() : summarize(siteService.getAllSites());
+    }
+
+    /**
+     * Reduces the aggregated sites to statistics, in parallel over partitions of the list when it is large enough.
+     */
+    public SiteStats summarize(List<Site> sites) {
+        Stream<Site> stream = sites.size() >= parallelThreshold ? sites.parallelStream() : sites.stream();
+        return stream.collect(SiteStatsAccumulator.collector());
+    }
+}
@@ -0,0 +1,252 @@
+package com.msr.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.msr.data.BulkSiteWriter;
+import com.msr.data.SiteAggregateDao;
+import com.msr.data.SiteDao;
+import com.msr.data.UseTypeDictionary;
+import com.msr.model.BulkIngestReport;
+import com.msr.model.SiteUseRecord;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts or replaces site uses from newline delimited JSON, one {@link SiteUseRecord} per line.
+ *
+ * Lines are read and validated one at a time while the upload arrives, so a slow writer simply slows the client
+ * down. Valid records are written in batches of sites.bulk.chunk-size, each batch with the aggregates of the sites
+ * it touched in its own transaction, followed by a {@link SitesChangedEvent}. Invalid lines are rejected without
+ * stopping the upload, and so are lines longer than sites.bulk.max-line-length, whose excess is skipped unread into
+ * memory.
+ */
+@Log4j2
+@Service
+public class SiteUseIngestService {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BulkSiteWriter bulkSiteWriter;
+
+    @Autowired
+    private SiteDao siteDao;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Autowired
+    private UseTypeDictionary useTypeDictionary;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${sites.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    /* Rejected lines beyond this are only counted */
+    @Value("${sites.bulk.max-errors:100}")
+    private int maxErrors;
+
+    /* In characters, far above any valid record */
+    @Value("${sites.bulk.max-line-length:16384}")
+    private int maxLineLength;
+
+    /**
+     * Consumes the stream up to its end. Batches written before an I/O error stay committed.
+     */
+    public BulkIngestReport ingest(InputStream ndjson) throws IOException {
+        long start = System.nanoTime();
+        ObjectReader reader = objectMapper.readerFor(SiteUseRecord.class);
+        Tally tally = new Tally();
+        List<SiteUseRecord> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        try (BoundedLines lines = new BoundedLines(
+                new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8)), maxLineLength)) {
+            long lineNumber = 0;
+            String line;
+            while ((line = lines.next()) != null) {
+                lineNumber++;
+                if (lines.isTooLong()) {
+                    tally.reject(lineNumber, "line longer than " + maxLineLength + " characters");
+                    continue;
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                SiteUseRecord record;
+                try {
+                    record = reader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    tally.reject(lineNumber, "malformed site use: " + e.getOriginalMessage());
+                    continue;
+                }
+                String invalid = validate(record);
+                if (invalid != null) {
+                    tally.reject(lineNumber, invalid);
+                    continue;
+                }
+
+                chunk.add(record);
+                chunkLines.add(lineNumber);
+                if (chunk.size() == chunkSize) {
+                    write(chunk, chunkLines, tally);
+                }
+            }
+            write(chunk, chunkLines, tally);
+        }
+
+        BulkIngestReport report = new BulkIngestReport(tally.accepted, tally.rejected, tally.errors,
+                                                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Bulk site uses: {} accepted, {} rejected in {} ms", report.getAccepted(), report.getRejected(),
+                 report.getElapsedMillis());
+        return report;
+    }
+
+    private String validate(SiteUseRecord record) {
+        if (record.getId() <= 0) {
+            return "id must be positive";
+        }
+        if (record.getDescription() == null || record.getDescription().trim().isEmpty()) {
+            return "description is required";
+        }
+        if (record.getSizeSqft() < 0) {
+            return "size_sqft must not be negative";
+        }
+        if (useTypeDictionary.get(record.getUseTypeId()) == null) {
+            return "unknown use type " + record.getUseTypeId();
+        }
+        return null;
+    }
+
+    private void write(List<SiteUseRecord> chunk, List<Long> chunkLines, Tally tally) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // lines neither accepted nor rejected yet, all of them rejected when the database fails
+        List<Long> pendingLines = chunkLines;
+        try {
+            Set<Integer> sites = siteDao.findExistingIds(chunk.stream().map(SiteUseRecord::getSiteId)
+                                                              .collect(Collectors.toSet()));
+            List<SiteUseRecord> valid = new ArrayList<>(chunk.size());
+            List<Long> validLines = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                if (sites.contains(chunk.get(i).getSiteId())) {
+                    valid.add(chunk.get(i));
+                    validLines.add(chunkLines.get(i));
+                } else {
+                    tally.reject(chunkLines.get(i), "unknown site " + chunk.get(i).getSiteId());
+                }
+            }
+            pendingLines = validLines;
+            if (valid.isEmpty()) {
+                return;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                // a replaced use may move to another site, whose aggregate changes too
+                Set<Integer> affected = new HashSet<>(siteDao.findSiteIdsOfUses(
+                        valid.stream().map(SiteUseRecord::getId).collect(Collectors.toList())));
+                valid.forEach(record -> affected.add(record.getSiteId()));
+
+                bulkSiteWriter.upsertSiteUses(valid);
+                siteAggregateDao.refresh(affected);
+                eventPublisher.publishEvent(SitesChangedEvent.usesOf(affected));
+            });
+            tally.accepted += valid.size();
+        } catch (DataAccessException e) {
+            log.warn("Bulk site uses: batch of lines {}-{} rolled back", pendingLines.get(0),
+                     pendingLines.get(pendingLines.size() - 1), e);
+            String message = "batch rolled back: " + e.getMostSpecificCause().getMessage();
+            pendingLines.forEach(line -> tally.reject(line, message));
+        } finally {
+            chunk.clear();
+            chunkLines.clear();
+        }
+    }
+
+    /*
+     * Reads lines of at most maxLength characters, ended by \n. Of a longer line only the first maxLength characters
+     * are kept and the rest is skipped. \r is dropped, as JSON only allows it as whitespace.
+     */
+    private static final class BoundedLines implements Closeable {
+        private final Reader reader;
+        private final int maxLength;
+        private final StringBuilder line = new StringBuilder();
+        private boolean tooLong;
+
+        private BoundedLines(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /* The next line without its terminator, null at the end of the input */
+        private String next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            while (c != -1 && c != '\n') {
+                if (c != '\r') {
+                    if (line.length() < maxLength) {
+                        line.append((char) c);
+                    } else {
+                        tooLong = true;
+                    }
+                }
+                c = reader.read();
+            }
+            return line.toString();
+        }
+
+        /* Whether the line last returned was cut off */
+        private boolean isTooLong() {
+            return tooLong;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private final class Tally {
+        private long accepted;
+        private long rejected;
+        private final List<BulkIngestReport.LineError> errors = new ArrayList<>();
+
+        private void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new BulkIngestReport.LineError(line, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.msr.service;
+
+import com.msr.data.SiteAggregateDao;
+import com.msr.data.SiteRepository;
+import com.msr.data.SiteUseRepository;
+import com.msr.model.SiteUse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+/**
+ * Writes site uses and keeps the site_aggregate rows of the affected sites up to date in the same transaction.
+ * Publishes a {@link SitesChangedEvent} for the affected sites.
+ */
+@Service
+public class SiteUseService {
+    @Autowired
+    private SiteUseRepository siteUseRepository;
+
+    @Autowired
+    private SiteRepository siteRepository;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public SiteUse addSiteUse(int siteId, SiteUse siteUse) {
+        siteUse.setSite(siteRepository.getOne(siteId));
+        SiteUse saved = siteUseRepository.saveAndFlush(siteUse);
+
+        siteAggregateDao.refresh(siteId);
+        eventPublisher.publishEvent(SitesChangedEvent.usesOf(Collections.singleton(siteId)));
+        return saved;
+    }
+
+    @Transactional
+    public SiteUse updateSiteUse(int siteId, SiteUse siteUse) {
+        SiteUse existing = siteUseRepository.findById(siteUse.getId())
+                                            .orElseThrow(() -> new NoSuchElementException("No site use " + siteUse.getId()));
+        int previousSiteId = existing.getSite().getId();
+
+        existing.setSite(siteRepository.getOne(siteId));
+        existing.setDescription(siteUse.getDescription());
+        existing.setSizeSqft(siteUse.getSizeSqft());
+        existing.setUseType(siteUse.getUseType());
+        SiteUse saved = siteUseRepository.saveAndFlush(existing);
+
+        siteAggregateDao.refresh(Arrays.asList(previousSiteId, siteId));
+        eventPublisher.publishEvent(SitesChangedEvent.usesOf(Arrays.asList(previousSiteId, siteId)));
+        return saved;
+    }
+
+    @Transactional
+    public void removeSiteUse(int siteUseId) {
+        SiteUse existing = siteUseRepository.findById(siteUseId)
+                                            .orElseThrow(() -> new NoSuchElementException("No site use " + siteUseId));
+        int siteId = existing.getSite().getId();
+
+        siteUseRepository.delete(existing);
+        siteUseRepository.flush();
+
+        siteAggregateDao.refresh(siteId);
+        eventPublisher.publishEvent(SitesChangedEvent.usesOf(Collections.singleton(siteId)));
+    }
+}
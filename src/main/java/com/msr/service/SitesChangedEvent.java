@@ -0,0 +1,46 @@
+package com.msr.service;
+
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Published after sites or their uses were written, so in-memory read models can catch up
+ */
+@Value
+public class SitesChangedEvent {
+    /* Ids of the changed sites, empty when any site may have changed. */
+    Set<Integer> siteIds;
+
+    /* Whether only site uses, and with them the aggregates, changed, but no site row. */
+    boolean usesOnly;
+
+    public static SitesChangedEvent all() {
+        return new SitesChangedEvent(Collections.emptySet(), false);
+    }
+
+    public static SitesChangedEvent of(Collection<Integer> siteIds) {
+        return new SitesChangedEvent(Collections.unmodifiableSet(new HashSet<>(siteIds)), false);
+    }
+
+    /**
+     * @return An event for the sites whose uses changed, leaving their own columns as they were.
+     */
+    public static SitesChangedEvent usesOf(Collection<Integer> siteIds) {
+        return new SitesChangedEvent(Collections.unmodifiableSet(new HashSet<>(siteIds)), true);
+    }
+
+    /**
+     * @return An event for a change to the uses or aggregates of any site.
+     */
+    public static SitesChangedEvent allUses() {
+        return new SitesChangedEvent(Collections.emptySet(), true);
+    }
+
+    public boolean isAllSites() {
+        return siteIds.isEmpty();
+    }
+}
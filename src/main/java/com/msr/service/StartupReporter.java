@@ -0,0 +1,68 @@
+package com.msr.service;
+
+import com.msr.data.PersistentStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports how long the instance took to become ready next to the size of the data it serves, so cold starts,
+ * warm restarts of the persistent store and growing datasets can be compared.
+ *
+ * sites.startup.time      - JVM start until ready
+ * sites.startup.sites     - sites at that time
+ * sites.startup.site.uses - site uses at that time
+ *
+ * All tagged with store (memory or file) and reopened (whether a persistent store was reused).
+ */
+@Log4j2
+@Component
+public class StartupReporter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PersistentStore persistentStore;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public StartupReporter(JdbcTemplate jdbcTemplate, PersistentStore persistentStore, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.persistentStore = persistentStore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        long sites = count("site");
+        long siteUses = count("site_use");
+        String store = persistentStore.isPersistent() ? "file" : "memory";
+        Tags tags = Tags.of("store", store, "reopened", String.valueOf(persistentStore.isReopened()));
+
+        TimeGauge.builder("sites.startup.time", this, TimeUnit.MILLISECONDS, reporter -> startupMillis)
+                 .description("Time from JVM start until the application was ready")
+                 .tags(tags)
+                 .register(meterRegistry);
+        Gauge.builder("sites.startup.sites", () -> sites).tags(tags).baseUnit("rows").register(meterRegistry);
+        Gauge.builder("sites.startup.site.uses", () -> siteUses).tags(tags).baseUnit("rows").register(meterRegistry);
+
+        log.info("Ready in {} ms with {} sites and {} site uses ({} store{})", startupMillis, sites, siteUses, store,
+                 persistentStore.isReopened() ? ", reopened" : "");
+    }
+
+    private long count(String table) {
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return rows == null ? 0 : rows;
+    }
+}
@@ -0,0 +1,11 @@
+package com.msr.service;
+
+/**
+ * Where /sites/stats is computed, selected with sites.stats.source
+ */
+public enum StatsSource {
+    /* Parallel reduction over the sites SiteService returns */
+    MEMORY,
+    /* GROUP BY queries over site_aggregate */
+    SQL
+}
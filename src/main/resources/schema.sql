@@ -24,3 +24,14 @@ CREATE TABLE site_use (
     FOREIGN KEY (site_id) REFERENCES site(id),
     FOREIGN KEY (use_type_id) REFERENCES use_type(id)
 );
+
+DROP TABLE IF EXISTS site_aggregate;
+CREATE TABLE site_aggregate (
+    site_id INT PRIMARY KEY,
+    total_size INT NOT NULL,
+    primary_type_id INT,
+    FOREIGN KEY (site_id) REFERENCES site(id),
+    FOREIGN KEY (primary_type_id) REFERENCES use_type(id)
+);
+
+CREATE INDEX site_aggregate_total_size ON site_aggregate (total_size);
@@ -0,0 +1,58 @@
+package com.msr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.msr.support.TestConfigurationExclusion;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writes the Swagger spec of the API to a file, so it can be packaged as a static resource and served without
+ * scanning the controllers at startup. Run by the build at prepare-package:
+ *
+ * java -cp ... com.msr.ApiSpecExporter target/classes/static/api-docs/swagger.json
+ *
+ * Only the web layer matters here, so the startup aggregate rebuild is skipped.
+ */
+@Log4j2
+public final class ApiSpecExporter {
+
+    private static final String DEFAULT_TARGET = "target/classes/static/api-docs/swagger.json";
+
+    private ApiSpecExporter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path target = Paths.get(args.length > 0 ? args[0] : DEFAULT_TARGET);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BuildingsApiApplication.class)
+                .initializers(new TestConfigurationExclusion())
+                .properties("server.port=0",
+                            "spring.datasource.url=jdbc:h2:mem:apispec",
+                            "sites.swagger.runtime-scan.enabled=true",
+                            "sites.aggregates.rebuild-on-startup=false",
+                            "logging.level.root=WARN",
+                            "logging.level.com.msr.ApiSpecExporter=INFO")
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String spec = new RestTemplate().getForObject("http://localhost:" + port + "/v2/api-docs", String.class);
+
+            // the host of this throwaway server means nothing to readers of the file
+            ObjectMapper objectMapper = new ObjectMapper();
+            ObjectNode tree = (ObjectNode) objectMapper.readTree(spec);
+            tree.remove("host");
+
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(target.toFile(), tree);
+            log.info("Wrote API spec to {}", target.toAbsolutePath());
+        }
+    }
+}
@@ -8,10 +8,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -24,9 +29,14 @@ public class SitesControllerIntegrationTest {
 	@Autowired
 	private MockMvc mvc;
 
+	private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+		MvcResult result = mvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+		return mvc.perform(asyncDispatch(result));
+	}
+
 	@Test
 	public void testGetAllSite_200() throws Exception {
-		mvc.perform(MockMvcRequestBuilders.get("/sites/"))
+		performAsync(MockMvcRequestBuilders.get("/sites/"))
 		   .andExpect(status().isOk())
 		   .andExpect(jsonPath("$").isNotEmpty())
 		   .andExpect(jsonPath("$.length()").value(6))
@@ -52,7 +62,7 @@ public class SitesControllerIntegrationTest {
 
 	@Test
 	public void testGetAllSite_ByState_200() throws Exception {
-		mvc.perform(MockMvcRequestBuilders.get("/sites?state=CA"))
+		performAsync(MockMvcRequestBuilders.get("/sites?state=CA"))
 		   .andExpect(status().isOk())
 		   .andExpect(jsonPath("$").isNotEmpty())
 		   .andExpect(jsonPath("$.length()").value(5))
@@ -78,13 +88,13 @@ public class SitesControllerIntegrationTest {
 
 	@Test
 	public void testGetAllSite_ByState_204() throws Exception {
-		mvc.perform(MockMvcRequestBuilders.get("/sites?state=FL"))
+		performAsync(MockMvcRequestBuilders.get("/sites?state=FL"))
 		   .andExpect(status().isNoContent());
 	}
 
 	@Test
 	public void testGetSiteById_200() throws Exception {
-		mvc.perform(MockMvcRequestBuilders.get("/sites/" + 1))
+		performAsync(MockMvcRequestBuilders.get("/sites/" + 1))
 		   .andExpect(status().isOk())
 		   .andExpect(jsonPath("$.id").value(1))
 		   .andExpect(jsonPath("$.name").value("Measurabl HQ"))
@@ -97,7 +107,7 @@ public class SitesControllerIntegrationTest {
 		   .andExpect(jsonPath("$.primary_type.id").value(54))
 		   .andExpect(jsonPath("$.primary_type.name").value("Office"));
 
-		mvc.perform(MockMvcRequestBuilders.get("/sites/" + 5))
+		performAsync(MockMvcRequestBuilders.get("/sites/" + 5))
 		   .andExpect(status().isOk())
 		   .andExpect(jsonPath("$.id").value(5))
 		   .andExpect(jsonPath("$.name").value("Bellagio"))
@@ -113,7 +123,7 @@ public class SitesControllerIntegrationTest {
 
 	@Test
 	public void testGetSiteById_204() throws Exception {
-		mvc.perform(MockMvcRequestBuilders.get("/sites/" + 999))
+		performAsync(MockMvcRequestBuilders.get("/sites/" + 999))
 		   .andExpect(status().isNoContent());
 	}
 }
@@ -0,0 +1,13 @@
+package com.msr;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the statement count checks against the materialized aggregate read path.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statementcount-aggregate",
+        "sites.read-path=aggregate"
+})
+class SitesControllerStatementCountAggregateTest extends SitesControllerStatementCountTest {
+}
@@ -0,0 +1,13 @@
+package com.msr;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the statement count checks against the SQL aggregation read path.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statementcount-dao",
+        "sites.read-path=dao"
+})
+class SitesControllerStatementCountDaoTest extends SitesControllerStatementCountTest {
+}
@@ -0,0 +1,129 @@
+package com.msr;
+
+import com.msr.data.SiteAggregateDao;
+import com.msr.support.StatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fails when the number of SQL statements behind a /sites call grows with the number of rows it returns.
+ */
+@SpringBootTest(classes = BuildingsApiApplication.class)
+@AutoConfigureMockMvc
+@Import(StatementCounter.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statementcount-jpa",
+        "sites.read-path=jpa"
+})
+class SitesControllerStatementCountTest {
+
+    /* Upper bound for any single read, independent of the data size. */
+    static final int MAX_STATEMENTS = 4;
+
+    private static int nextSiteId = 10_000;
+
+    private static int nextSiteUseId = 10_000;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Test
+    void testGetAllSites_StatementsIndependentOfRowCount() throws Exception {
+        assertStatementCountStable("/sites");
+    }
+
+    @Test
+    void testGetSitesByState_StatementsIndependentOfRowCount() throws Exception {
+        assertStatementCountStable("/sites?state=CA");
+    }
+
+    @Test
+    void testGetSiteById_StatementsIndependentOfUseCount() throws Exception {
+        int siteId = seedSites(1, 3);
+        int before = countStatements("/sites/" + siteId);
+
+        addUses(siteId, 50);
+        int after = countStatements("/sites/" + siteId);
+
+        assertEquals(before, after);
+        assertTrue(after <= MAX_STATEMENTS, "statements: " + after);
+    }
+
+    @Test
+    void testGetSiteFields_SingleStatementWithoutAggregatedFields() throws Exception {
+        seedSites(10, 3);
+
+        assertEquals(1, countStatements("/sites?fields=id,name,state"));
+        assertEquals(1, countStatements("/sites?state=CA&fields=id,name"));
+        assertEquals(1, countStatements("/sites/1?fields=id,city"));
+    }
+
+    private void assertStatementCountStable(String url) throws Exception {
+        seedSites(10, 3);
+        int before = countStatements(url);
+
+        seedSites(200, 3);
+        int after = countStatements(url);
+
+        assertEquals(before, after, "statement count grew with the row count for " + url);
+        assertTrue(after <= MAX_STATEMENTS, "statements for " + url + ": " + after);
+    }
+
+    private int countStatements(String url) throws Exception {
+        StatementCounter.reset();
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(url)).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        return StatementCounter.count();
+    }
+
+    /**
+     * Inserts sites in CA with the given number of uses of distinct use types and returns the first new id.
+     */
+    private int seedSites(int sites, int usesPerSite) {
+        int firstId = nextSiteId;
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < sites; i++) {
+            int id = nextSiteId++;
+            rows.add(new Object[]{id, "Site " + id, id + " Main St", "San Diego", "CA", "92101"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO site(id,name,address,city,state,zipcode) VALUES (?,?,?,?,?,?)", rows);
+
+        for (int id = firstId; id < nextSiteId; id++) {
+            addUses(id, usesPerSite);
+        }
+        return firstId;
+    }
+
+    private void addUses(int siteId, int uses) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < uses; i++) {
+            rows.add(new Object[]{nextSiteUseId++, "Use " + i, 1000 + i, siteId, 1 + i % 112});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO site_use(id,description,size_sqft,site_id,use_type_id) VALUES (?,?,?,?,?)",
+                                 rows);
+        siteAggregateDao.refresh(siteId);
+    }
+}
@@ -1,27 +1,67 @@
 package com.msr;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.msr.config.SitesExecutorConfig;
+import com.msr.model.BulkIngestReport;
 import com.msr.model.Site;
+import com.msr.model.SiteBatch;
+import com.msr.model.SiteField;
+import com.msr.model.SitePage;
+import com.msr.model.SiteStats;
 import com.msr.model.UseType;
+import com.msr.service.DatasetVersion;
+import com.msr.service.SiteExportService;
+import com.msr.service.SiteSearchService;
+import com.msr.service.SiteJsonCache;
 import com.msr.service.SiteService;
+import com.msr.service.SiteStatsService;
+import com.msr.service.SiteUseIngestService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -29,6 +69,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  */
 @RunWith(SpringRunner.class)
 @WebMvcTest(SitesController.class)
+@Import(SiteJsonCache.class)
 class SitesControllerTest {
 
     private final SitesController sitesController = new SitesController();
@@ -39,11 +80,54 @@ class SitesControllerTest {
     @MockBean
     private SiteService service;
 
+    @MockBean
+    private SiteExportService exportService;
+
+    @MockBean
+    private DatasetVersion datasetVersion;
+
+    @MockBean
+    private SiteStatsService statsService;
+
+    @MockBean
+    private SiteUseIngestService ingestService;
+
+    @MockBean
+    private SiteSearchService searchService;
+
+    @MockBean(name = SitesExecutorConfig.SITES_EXECUTOR)
+    private Executor sitesExecutor;
+
     private Site santaSite;
     private Site elonSite;
     private UseType useType1;
     private UseType useType2;
 
+    private static final String DATASET_ETAG = "\"k1-5\"";
+    private static final String SITE_ETAG = "\"k1-2\"";
+
+    @BeforeEach
+    void stubDatasetVersion() {
+        when(datasetVersion.etag()).thenReturn(DATASET_ETAG);
+        when(datasetVersion.etag(anyInt())).thenReturn(SITE_ETAG);
+    }
+
+    @BeforeEach
+    void runHandlersInline() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(sitesExecutor).execute(any());
+    }
+
+    /**
+     * Performs a request whose handler completes asynchronously and dispatches its result like the container would.
+     */
+    private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+        return mvc.perform(asyncDispatch(result));
+    }
+
     void setUp() {
         useType1 = UseType.builder().id(12).name("Office").build();
         useType2 = UseType.builder().id(33).name("Home").build();
@@ -88,7 +172,7 @@ class SitesControllerTest {
 
         when(service.getAllSites()).thenReturn(Arrays.asList(santaSite, elonSite));
 
-        mvc.perform(MockMvcRequestBuilders.get("/sites"))
+        performAsync(MockMvcRequestBuilders.get("/sites"))
            .andExpect(status().isOk())
            .andExpect(jsonPath("$").isNotEmpty())
            .andExpect(jsonPath("$[0].id").value(santaSite.getId()))
@@ -111,7 +195,7 @@ class SitesControllerTest {
 
         when(service.getAllSites()).thenReturn(Collections.emptyList());
 
-        mvc.perform(MockMvcRequestBuilders.get("/sites"))
+        performAsync(MockMvcRequestBuilders.get("/sites"))
            .andExpect(status().isNoContent());
     }
 
@@ -121,7 +205,7 @@ class SitesControllerTest {
 
         when(service.getSitesByState("TX")).thenReturn(Collections.singletonList(elonSite));
 
-        mvc.perform(MockMvcRequestBuilders.get("/sites?state=TX"))
+        performAsync(MockMvcRequestBuilders.get("/sites?state=TX"))
            .andExpect(status().isOk())
            .andExpect(jsonPath("$").isNotEmpty())
            .andExpect(jsonPath("$[0].id").value(elonSite.getId()))
@@ -138,20 +222,264 @@ class SitesControllerTest {
 
         when(service.getSitesByState("CA")).thenReturn(Collections.emptyList());
 
-        mvc.perform(MockMvcRequestBuilders.get("/sites?state=CA"))
+        performAsync(MockMvcRequestBuilders.get("/sites?state=CA"))
            .andExpect(status().isNoContent());
     }
 
+    @Test
+    void testGetAllSites_ByZipAndCity() throws Exception {
+        setUp();
+
+        when(service.getSitesByPattern("777*", "jup*", "TX")).thenReturn(Collections.singletonList(elonSite));
+
+        performAsync(MockMvcRequestBuilders.get("/sites?zip=777*&city=jup*&state=TX"))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG))
+           .andExpect(jsonPath("$[0].id").value(elonSite.getId()));
+
+        verify(service, never()).getSitesByState(any());
+    }
+
+    @Test
+    void testGetAllSites_ByZip_BadRequest() throws Exception {
+        when(service.getSitesByPattern("9*1", null, null)).thenThrow(new IllegalArgumentException());
+
+        performAsync(MockMvcRequestBuilders.get("/sites?zip=9*1"))
+           .andExpect(status().isBadRequest());
+        performAsync(MockMvcRequestBuilders.get("/sites?zip=921*&limit=10"))
+           .andExpect(status().isBadRequest());
+
+        verify(service, never()).getSitesPage(any(), any(), any());
+    }
+
+    @Test
+    void testGetAllSites_BySize() throws Exception {
+        setUp();
+
+        when(service.getSitesBySize(1000, null, "office", "TX")).thenReturn(Collections.singletonList(elonSite));
+
+        performAsync(MockMvcRequestBuilders.get("/sites?minSize=1000&primaryType=office&state=TX"))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG))
+           .andExpect(jsonPath("$[0].id").value(elonSite.getId()));
+
+        verify(service, never()).getSitesByState(any());
+    }
+
+    @Test
+    void testGetAllSites_BySize_BadRequest() throws Exception {
+        performAsync(MockMvcRequestBuilders.get("/sites?maxSize=1000&limit=10"))
+           .andExpect(status().isBadRequest());
+        performAsync(MockMvcRequestBuilders.get("/sites?primaryType=office&zip=921*"))
+           .andExpect(status().isBadRequest());
+        mvc.perform(MockMvcRequestBuilders.get("/sites?minSize=large"))
+           .andExpect(status().isBadRequest());
+
+        verify(service, never()).getSitesBySize(any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetTopSites() throws Exception {
+        setUp();
+
+        when(service.getTopSites(2, "TX", "office")).thenReturn(Arrays.asList(elonSite, santaSite));
+
+        performAsync(MockMvcRequestBuilders.get("/sites/top?n=2&state=TX&primaryType=office"))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG))
+           .andExpect(jsonPath("$[0].id").value(elonSite.getId()))
+           .andExpect(jsonPath("$[1].id").value(santaSite.getId()));
+    }
+
+    @Test
+    void testGetTopSites_BadRequest() throws Exception {
+        when(service.getTopSites(0, null, null)).thenThrow(new IllegalArgumentException());
+
+        performAsync(MockMvcRequestBuilders.get("/sites/top?n=0"))
+           .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchSites() throws Exception {
+        setUp();
+
+        when(searchService.search("elon's rocket", 5)).thenReturn(Arrays.asList(elonSite, santaSite));
+
+        performAsync(MockMvcRequestBuilders.get("/sites/search").param("q", "elon's rocket").param("limit", "5"))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG))
+           .andExpect(jsonPath("$[0].id").value(elonSite.getId()))
+           .andExpect(jsonPath("$[1].id").value(santaSite.getId()));
+    }
+
+    @Test
+    void testSearchSites_BadRequest() throws Exception {
+        when(searchService.search("...", null)).thenThrow(new IllegalArgumentException());
+
+        performAsync(MockMvcRequestBuilders.get("/sites/search?q=..."))
+           .andExpect(status().isBadRequest());
+        mvc.perform(MockMvcRequestBuilders.get("/sites/search"))
+           .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGetAllSites_Exception() throws Exception {
         setUp();
 
         when(service.getAllSites()).thenThrow(new RuntimeException());
 
-        mvc.perform(MockMvcRequestBuilders.get("/sites"))
+        performAsync(MockMvcRequestBuilders.get("/sites"))
            .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void testGetAllSites_Page() throws Exception {
+        setUp();
+
+        when(service.getSitesPage("MN", null, 1)).thenReturn(new SitePage(Collections.singletonList(santaSite), "next"));
+
+        performAsync(MockMvcRequestBuilders.get("/sites?state=MN&limit=1"))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("$.length()").value(1))
+           .andExpect(jsonPath("$[0].id").value(santaSite.getId()))
+           .andExpect(header().string(SitesController.NEXT_CURSOR_HEADER, "next"))
+           .andExpect(header().string("Link", containsString("cursor=next")))
+           .andExpect(header().string("Link", containsString("state=MN")));
+    }
+
+    @Test
+    void testGetAllSites_LastPage() throws Exception {
+        setUp();
+
+        when(service.getSitesPage(null, "last", null)).thenReturn(new SitePage(Collections.singletonList(elonSite), null));
+
+        performAsync(MockMvcRequestBuilders.get("/sites?cursor=last"))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("$[0].id").value(elonSite.getId()))
+           .andExpect(header().doesNotExist(SitesController.NEXT_CURSOR_HEADER))
+           .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void testGetAllSites_InvalidCursor() throws Exception {
+        setUp();
+
+        when(service.getSitesPage(null, "bogus", null)).thenThrow(new IllegalArgumentException());
+
+        performAsync(MockMvcRequestBuilders.get("/sites?cursor=bogus"))
+           .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamSites() throws Exception {
+        setUp();
+
+        doAnswer(invocation -> {
+            Consumer<Site> consumer = invocation.getArgument(1);
+            consumer.accept(santaSite);
+            consumer.accept(elonSite);
+            return null;
+        }).when(exportService).exportSites(isNull(), any(Consumer.class));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/sites/stream")).andReturn();
+
+        mvc.perform(asyncDispatch(result))
+           .andExpect(status().isOk())
+           .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+           .andExpect(content().string(matchesPattern(
+                   "\\{\"id\":1,.*\"total_size\":289,\"primary_type\":\\{\"id\":33,.*}}\n"
+                           + "\\{\"id\":2,.*\"total_size\":12345,\"primary_type\":\\{\"id\":12,.*}}\n")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamSites_AcceptNdjson() throws Exception {
+        setUp();
+
+        doAnswer(invocation -> {
+            Consumer<Site> consumer = invocation.getArgument(1);
+            consumer.accept(elonSite);
+            return null;
+        }).when(exportService).exportSites(eq("TX"), any(Consumer.class));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/sites/stream?state=TX")
+                                                             .accept(MediaType.APPLICATION_NDJSON)).andReturn();
+
+        mvc.perform(asyncDispatch(result))
+           .andExpect(status().isOk())
+           .andExpect(content().string(containsString("\"name\":\"SpaceX\"")));
+        // the export lifts the async timeout for itself only
+        assertEquals(-1, result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamSites_CborSequence() throws Exception {
+        setUp();
+
+        doAnswer(invocation -> {
+            Consumer<Site> consumer = invocation.getArgument(1);
+            consumer.accept(santaSite);
+            consumer.accept(elonSite);
+            return null;
+        }).when(exportService).exportSites(isNull(), any(Consumer.class));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/sites/stream")
+                                                             .accept(SitesController.CBOR_SEQ_VALUE)).andReturn();
+
+        byte[] body = mvc.perform(asyncDispatch(result))
+           .andExpect(status().isOk())
+           .andExpect(content().contentType(SitesController.CBOR_SEQ_VALUE))
+           .andReturn().getResponse().getContentAsByteArray();
+
+        MappingIterator<Site> sites = Jackson2ObjectMapperBuilder.cbor().build().readerFor(Site.class).readValues(body);
+        assertEquals(Arrays.asList(santaSite, elonSite), sites.readAll());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamSites_AcceptQualityValues() throws Exception {
+        setUp();
+
+        doAnswer(invocation -> {
+            Consumer<Site> consumer = invocation.getArgument(1);
+            consumer.accept(santaSite);
+            return null;
+        }).when(exportService).exportSites(isNull(), any(Consumer.class));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/sites/stream").header(
+                HttpHeaders.ACCEPT, "application/x-ndjson;q=0.5, application/cbor-seq")).andReturn();
+
+        mvc.perform(asyncDispatch(result))
+           .andExpect(status().isOk())
+           .andExpect(content().contentType(SitesController.CBOR_SEQ_VALUE));
+    }
+
+    @Test
+    void testIngestSiteUses() throws Exception {
+        BulkIngestReport report = new BulkIngestReport(2, 1, Collections.singletonList(
+                new BulkIngestReport.LineError(3, "unknown site 99")), 5);
+        when(ingestService.ingest(any())).thenReturn(report);
+
+        mvc.perform(MockMvcRequestBuilders.post("/sites/uses:bulk")
+                                          .contentType(MediaType.APPLICATION_NDJSON)
+                                          .content("{}\n{}\n{}\n"))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("$.accepted").value(2))
+           .andExpect(jsonPath("$.rejected").value(1))
+           .andExpect(jsonPath("$.errors[0].line").value(3))
+           .andExpect(jsonPath("$.errors[0].message").value("unknown site 99"));
+    }
+
+    @Test
+    void testIngestSiteUses_RequiresNdjson() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/sites/uses:bulk")
+                                          .contentType(MediaType.APPLICATION_JSON)
+                                          .content("[]"))
+           .andExpect(status().isUnsupportedMediaType());
+    }
+
     @Test
     void testGetSiteById() throws Exception {
         setUp();
@@ -159,7 +487,7 @@ class SitesControllerTest {
         int siteId = 1;
         when(service.getSiteById(anyInt())).thenReturn(Optional.of(santaSite));
 
-        mvc.perform(MockMvcRequestBuilders.get("/sites/" + siteId))
+        performAsync(MockMvcRequestBuilders.get("/sites/" + siteId))
            .andExpect(status().isOk())
            .andExpect(jsonPath("$.id").value(santaSite.getId()))
            .andExpect(jsonPath("$.name").value(santaSite.getName()))
@@ -169,6 +497,55 @@ class SitesControllerTest {
            .andExpect(jsonPath("$.primary_type.name").value(useType2.getName()));
     }
 
+    @Test
+    void testGetSiteById_Smile() throws Exception {
+        setUp();
+
+        when(service.getSiteById(1)).thenReturn(Optional.of(santaSite));
+
+        byte[] body = performAsync(MockMvcRequestBuilders.get("/sites/1").accept(SitesController.SMILE_VALUE))
+           .andExpect(status().isOk())
+           .andExpect(content().contentType(SitesController.SMILE_VALUE))
+           .andExpect(header().string(HttpHeaders.ETAG, "\"k1-2+smile\""))
+           .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+           .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(santaSite, Jackson2ObjectMapperBuilder.smile().build().readValue(body, Site.class));
+    }
+
+    @Test
+    void testGetAllSites_Fields() throws Exception {
+        Map<String, Object> site = new LinkedHashMap<>();
+        site.put("id", 2);
+        site.put("state", "TX");
+        when(service.getSiteFields("TX", EnumSet.of(SiteField.ID, SiteField.STATE)))
+            .thenReturn(Collections.singletonList(site));
+
+        performAsync(MockMvcRequestBuilders.get("/sites?state=TX&fields=state, id"))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG))
+           .andExpect(content().json("[{\"id\":2,\"state\":\"TX\"}]", true));
+    }
+
+    @Test
+    void testGetAllSites_UnknownField() throws Exception {
+        performAsync(MockMvcRequestBuilders.get("/sites?fields=id,siteUses"))
+           .andExpect(status().isBadRequest());
+
+        verify(service, never()).getSiteFields(any(), any());
+    }
+
+    @Test
+    void testGetSiteById_Fields() throws Exception {
+        when(service.getSiteFieldsById(1, EnumSet.of(SiteField.NAME, SiteField.TOTAL_SIZE)))
+            .thenReturn(Optional.of(Collections.singletonMap("name", "Santa's Domain")));
+
+        performAsync(MockMvcRequestBuilders.get("/sites/1?fields=name,total_size"))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, SITE_ETAG))
+           .andExpect(jsonPath("$.name").value("Santa's Domain"));
+    }
+
     @Test
     void testGetSiteById_Empty() throws Exception {
         setUp();
@@ -176,7 +553,7 @@ class SitesControllerTest {
         int siteId = 1;
         when(service.getSiteById(anyInt())).thenReturn(Optional.empty());
 
-        mvc.perform(MockMvcRequestBuilders.get("/sites/" + siteId))
+        performAsync(MockMvcRequestBuilders.get("/sites/" + siteId))
            .andExpect(status().isNoContent());
     }
 
@@ -187,7 +564,124 @@ class SitesControllerTest {
         int siteId = 1;
         when(service.getSiteById(anyInt())).thenThrow(new RuntimeException());
 
-        mvc.perform(MockMvcRequestBuilders.get("/sites/" + siteId))
+        performAsync(MockMvcRequestBuilders.get("/sites/" + siteId))
            .andExpect(status().isInternalServerError());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetAllSites_ETag() throws Exception {
+        setUp();
+
+        when(service.getAllSites()).thenReturn(Arrays.asList(santaSite, elonSite));
+
+        performAsync(MockMvcRequestBuilders.get("/sites"))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG));
+    }
+
+    @Test
+    void testGetAllSites_NotModified() throws Exception {
+        performAsync(MockMvcRequestBuilders.get("/sites").param("state", "CA")
+                                           .header(HttpHeaders.IF_NONE_MATCH, DATASET_ETAG))
+           .andExpect(status().isNotModified())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG))
+           .andExpect(content().string(""));
+
+        verify(service, never()).getSitesByState(any());
+    }
+
+    @Test
+    void testGetAllSites_StaleETag() throws Exception {
+        setUp();
+
+        when(service.getAllSites()).thenReturn(Collections.singletonList(santaSite));
+
+        performAsync(MockMvcRequestBuilders.get("/sites").header(HttpHeaders.IF_NONE_MATCH, "\"k1-4\""))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG))
+           .andExpect(jsonPath("$[0].id").value(santaSite.getId()));
+    }
+
+    @Test
+    void testGetSiteById_NotModified() throws Exception {
+        performAsync(MockMvcRequestBuilders.get("/sites/1").header(HttpHeaders.IF_NONE_MATCH, SITE_ETAG))
+           .andExpect(status().isNotModified())
+           .andExpect(header().string(HttpHeaders.ETAG, SITE_ETAG))
+           .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        verify(service, never()).getSiteById(anyInt());
+    }
+
+    @Test
+    void testGetSiteById_OtherRepresentationIsModified() throws Exception {
+        setUp();
+
+        when(service.getSiteById(1)).thenReturn(Optional.of(santaSite));
+
+        // the JSON tag does not validate a cached CBOR body
+        performAsync(MockMvcRequestBuilders.get("/sites/1").accept("application/cbor")
+                                           .header(HttpHeaders.IF_NONE_MATCH, SITE_ETAG))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, "\"k1-2+cbor\""));
+    }
+
+    @Test
+    void testGetSitesByIds() throws Exception {
+        setUp();
+
+        when(service.getSitesByIds(Arrays.asList(2, 999, 1)))
+                .thenReturn(new SiteBatch(Arrays.asList(elonSite, santaSite), Collections.singletonList(999)));
+
+        performAsync(MockMvcRequestBuilders.post("/sites/batch").contentType(MediaType.APPLICATION_JSON)
+                                           .content("[2, 999, 1]"))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("$.sites.length()").value(2))
+           .andExpect(jsonPath("$.sites[0].id").value(elonSite.getId()))
+           .andExpect(jsonPath("$.sites[0].total_size").value(elonSite.getTotalSize()))
+           .andExpect(jsonPath("$.sites[1].id").value(santaSite.getId()))
+           .andExpect(jsonPath("$.missing[0]").value(999));
+    }
+
+    @Test
+    void testGetSitesByIds_TooMany() throws Exception {
+        when(service.getSitesByIds(any())).thenThrow(new IllegalArgumentException());
+
+        performAsync(MockMvcRequestBuilders.post("/sites/batch").contentType(MediaType.APPLICATION_JSON)
+                                           .content("[1, 2, 3]"))
+           .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetSitesByIds_NoBody() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/sites/batch").contentType(MediaType.APPLICATION_JSON))
+           .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetStats() throws Exception {
+        SiteStats stats = SiteStats.builder().sites(2).totalSize(12634)
+                                   .byState(Collections.singletonMap("TX", new SiteStats.SiteTotals(2, 12634)))
+                                   .sizeHistogram(Collections.singletonList(new SiteStats.SizeBucket(10000, 100000L, 2)))
+                                   .build();
+        when(statsService.getStats()).thenReturn(stats);
+
+        performAsync(MockMvcRequestBuilders.get("/sites/stats"))
+           .andExpect(status().isOk())
+           .andExpect(header().string(HttpHeaders.ETAG, DATASET_ETAG))
+           .andExpect(jsonPath("$.sites").value(2))
+           .andExpect(jsonPath("$.total_size").value(12634))
+           .andExpect(jsonPath("$.by_state.TX.total_size").value(12634))
+           .andExpect(jsonPath("$.size_histogram[0].max").value(100000));
+    }
+
+    @Test
+    void testGetAllSites_Saturated() throws Exception {
+        doThrow(new TaskRejectedException("saturated")).when(sitesExecutor).execute(any());
+
+        mvc.perform(MockMvcRequestBuilders.get("/sites"))
+           .andExpect(status().isServiceUnavailable())
+           .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        verify(service, never()).getAllSites();
+    }
+}
@@ -0,0 +1,279 @@
+package com.msr;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msr.data.SiteAggregateDao;
+import com.msr.service.SitesChangedEvent;
+import com.msr.support.SyntheticSites;
+import lombok.extern.log4j.Log4j2;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives the running application over HTTP with a weighted mix of /sites/{id}, /sites?state= and /sites requests and
+ * reports throughput and latency percentiles. Excluded from the default build, run with mvn -Pload test.
+ *
+ * Tunable through system properties, e.g. -Dload.sites=100000 -Dload.concurrency=32 -Dload.mix=id=80,state=20.
+ * The report is written to target/load-report.json and compared with src/test/resources/load/baseline.json when the
+ * baseline was recorded with the same data size, concurrency and mix; -Dload.record-baseline=true replaces the
+ * baseline. Without a matching baseline the comparison is skipped, so the run is reported as skipped, not passed.
+ */
+@Log4j2
+@Tag("load")
+@SpringBootTest(classes = BuildingsApiApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest",
+        "logging.level.root=WARN",
+        "logging.level.com.msr.SitesLoadTest=INFO"
+})
+class SitesLoadTest {
+
+    private static final Path REPORT = Paths.get("target", "load-report.json");
+
+    private static final String BASELINE = "load/baseline.json";
+
+    private static final Path BASELINE_SOURCE = Paths.get("src", "test", "resources", BASELINE);
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${load.sites:20000}")
+    private int sites;
+
+    @Value("${load.uses-per-site:4}")
+    private int usesPerSite;
+
+    @Value("${load.concurrency:16}")
+    private int concurrency;
+
+    @Value("${load.warmup-seconds:5}")
+    private int warmupSeconds;
+
+    @Value("${load.duration-seconds:30}")
+    private int durationSeconds;
+
+    /* Relative weights of the request kinds: id, state and all */
+    @Value("${load.mix:id=90,state=9,all=1}")
+    private String mix;
+
+    /* Allowed relative regression of throughput and p99 against the baseline */
+    @Value("${load.tolerance:0.25}")
+    private double tolerance;
+
+    @Value("${load.record-baseline:false}")
+    private boolean recordBaseline;
+
+    @Test
+    void testLoad() throws Exception {
+        SyntheticSites.seed(jdbcTemplate, sites, usesPerSite, 42);
+        siteAggregateDao.rebuildAll();
+        eventPublisher.publishEvent(SitesChangedEvent.all());
+
+        Map<String, Integer> weights = parseMix(mix);
+        run(weights, warmupSeconds);
+        Map<String, Object> report = run(weights, durationSeconds);
+
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        log.info("Load report:\n{}", json);
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, json.getBytes(StandardCharsets.UTF_8));
+        if (recordBaseline) {
+            Files.createDirectories(BASELINE_SOURCE.getParent());
+            Files.write(BASELINE_SOURCE, json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(0L, report.get("errors"), "failed requests");
+        compareWithBaseline(objectMapper.valueToTree(report));
+    }
+
+    private Map<String, Object> run(Map<String, Integer> weights, int seconds) throws Exception {
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        histograms.put("all", new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+        weights.keySet().forEach(kind -> histograms.put(kind, new ConcurrentHistogram(SIGNIFICANT_DIGITS)));
+        AtomicLong errors = new AtomicLong();
+        int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                clients.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        String kind = pick(weights, totalWeight);
+                        long before = System.nanoTime();
+                        boolean ok = get(path(kind));
+                        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - before);
+                        histograms.get("all").recordValue(micros);
+                        histograms.get(kind).recordValue(micros);
+                        if (!ok) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("sites", sites);
+        report.put("usesPerSite", usesPerSite);
+        report.put("concurrency", concurrency);
+        report.put("mix", mix);
+        report.put("durationSeconds", seconds);
+        report.put("requests", histograms.get("all").getTotalCount());
+        report.put("errors", errors.get());
+        report.put("throughput", Math.round(histograms.get("all").getTotalCount() / elapsedSeconds));
+        Map<String, Object> latencies = new LinkedHashMap<>();
+        histograms.forEach((kind, histogram) -> latencies.put(kind, percentiles(histogram)));
+        report.put("latencyMillis", latencies);
+        return report;
+    }
+
+    private String path(String kind) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (kind) {
+            case "id":
+                return "/sites/" + (SyntheticSites.FIRST_SITE_ID + random.nextInt(sites));
+            case "state":
+                return "/sites?state=" + SyntheticSites.STATES[random.nextInt(SyntheticSites.STATES.length)];
+            case "all":
+                return "/sites";
+            default:
+                throw new IllegalArgumentException("Unknown request kind " + kind);
+        }
+    }
+
+    /* Reads the whole body so the connection goes back to the keep-alive pool. */
+    private boolean get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (body != null) {
+            try (InputStream in = body) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // discard
+                }
+            }
+        }
+        return status == 200 || status == 204;
+    }
+
+    private void compareWithBaseline(JsonNode report) throws IOException {
+        if (recordBaseline) {
+            return;
+        }
+        ClassPathResource resource = new ClassPathResource(BASELINE);
+        assumeTrue(resource.exists(),
+                   "No baseline at " + BASELINE_SOURCE + ", record one with -Dload.record-baseline=true");
+        JsonNode baseline;
+        try (InputStream in = resource.getInputStream()) {
+            baseline = objectMapper.readTree(in);
+        }
+        assumeTrue(baseline.path("sites").asInt() == sites && baseline.path("concurrency").asInt() == concurrency
+                           && mix.equals(baseline.path("mix").asText()),
+                   "Baseline was recorded with a different configuration, not compared");
+
+        long throughput = report.path("throughput").asLong();
+        long baselineThroughput = baseline.path("throughput").asLong();
+        assertTrue(throughput >= baselineThroughput * (1 - tolerance),
+                   "throughput " + throughput + " req/s, baseline " + baselineThroughput + " req/s");
+
+        double p99 = report.path("latencyMillis").path("all").path("p99").asDouble();
+        double baselineP99 = baseline.path("latencyMillis").path("all").path("p99").asDouble();
+        assertTrue(p99 <= baselineP99 * (1 + tolerance), "p99 " + p99 + " ms, baseline " + baselineP99 + " ms");
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("count", histogram.getTotalCount());
+        percentiles.put("p50", millis(histogram.getValueAtPercentile(50)));
+        percentiles.put("p95", millis(histogram.getValueAtPercentile(95)));
+        percentiles.put("p99", millis(histogram.getValueAtPercentile(99)));
+        percentiles.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        return percentiles;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static String pick(Map<String, Integer> weights, int totalWeight) {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            ticket -= weight.getValue();
+            if (ticket < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Weights changed");
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kindAndWeight = part.trim().split("=");
+            int weight = Integer.parseInt(kindAndWeight[1].trim());
+            if (weight > 0) {
+                weights.put(kindAndWeight[0].trim(), weight);
+            }
+        }
+        return weights;
+    }
+}
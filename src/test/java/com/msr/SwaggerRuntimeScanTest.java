@@ -0,0 +1,39 @@
+package com.msr;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that springfox does not scan or serve anything with sites.swagger.runtime-scan.enabled=false
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:swaggeroff",
+        "sites.swagger.runtime-scan.enabled=false"
+})
+class SwaggerRuntimeScanTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void testRuntimeScanOff() throws Exception {
+        assertTrue(context.getBeansOfType(Docket.class).isEmpty());
+
+        mvc.perform(get("/v2/api-docs")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,39 @@
+package com.msr.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SiteJsonHttpMessageConverterTest {
+
+    @Test
+    void testAcceptsGzip() {
+        assertTrue(accepts("gzip, deflate, br"));
+        assertTrue(accepts("GZIP;Q=0.5"));
+        assertTrue(accepts("x-gzip"));
+        assertTrue(accepts("deflate, *;q=0.1"));
+        assertTrue(SiteJsonHttpMessageConverter.acceptsGzip(Arrays.asList("deflate", "gzip")));
+
+        assertFalse(accepts("identity"));
+        assertFalse(accepts("gzipped"));
+        assertFalse(SiteJsonHttpMessageConverter.acceptsGzip(Collections.emptyList()));
+    }
+
+    @Test
+    void testAcceptsGzip_RefusedByQualityZero() {
+        assertFalse(accepts("gzip;q=0"));
+        assertFalse(accepts("gzip; q=0.000, deflate"));
+        // a named coding overrides *
+        assertFalse(accepts("*, gzip;q=0"));
+        assertFalse(accepts("*;q=0"));
+        assertFalse(accepts("gzip;q=oops"));
+    }
+
+    private static boolean accepts(String acceptEncoding) {
+        return SiteJsonHttpMessageConverter.acceptsGzip(Collections.singletonList(acceptEncoding));
+    }
+}
@@ -0,0 +1,73 @@
+package com.msr.data;
+
+import com.msr.BuildingsApiApplication;
+import com.msr.support.TestConfigurationExclusion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Restarts the application on the same file backed store and checks that the data of the first run is served as is,
+ * and that a fresh store is seeded whatever else starts up
+ */
+class PersistentStoreTest {
+
+    @TempDir
+    Path storeDir;
+
+    @Test
+    void testRestartReopensTheStore() {
+        try (ConfigurableApplicationContext first = start()) {
+            assertFalse(first.getBean(PersistentStore.class).isReopened());
+
+            JdbcTemplate jdbcTemplate = first.getBean(JdbcTemplate.class);
+            assertEquals(6, count(jdbcTemplate, "site"));
+            jdbcTemplate.update("INSERT INTO site(id,name,address,city,state,zipcode) "
+                                        + "VALUES (7,'Depot','1 Rail Rd','Fresno','CA','93701')");
+            jdbcTemplate.update("INSERT INTO site_use(id,description,size_sqft,site_id,use_type_id) "
+                                        + "VALUES (1000,'Storage',2500,7,54)");
+            first.getBean(SiteAggregateDao.class).refresh(7);
+        }
+
+        try (ConfigurableApplicationContext second = start()) {
+            assertTrue(second.getBean(PersistentStore.class).isReopened());
+
+            JdbcTemplate jdbcTemplate = second.getBean(JdbcTemplate.class);
+            assertEquals(7, count(jdbcTemplate, "site"));
+            assertEquals(2500, second.getBean(SiteAggregateDao.class).findBySiteId(7).get().getTotalSize());
+        }
+    }
+
+    @Test
+    void testFreshStoreIsSeededWithoutAggregateRebuild() {
+        try (ConfigurableApplicationContext context = start("--sites.aggregates.rebuild-on-startup=false")) {
+            assertFalse(context.getBean(PersistentStore.class).isReopened());
+            assertEquals(6, count(context.getBean(JdbcTemplate.class), "site"));
+            assertEquals("Casino", context.getBean(UseTypeDictionary.class).get(37).getName());
+        }
+    }
+
+    private ConfigurableApplicationContext start(String... args) {
+        String[] withStore = Arrays.copyOf(args, args.length + 1);
+        withStore[args.length] = "--sites.store.path=" + storeDir.resolve("measurabl").toAbsolutePath();
+        return new SpringApplicationBuilder(BuildingsApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("persistent")
+                .initializers(new TestConfigurationExclusion())
+                .run(withStore);
+    }
+
+    private static int count(JdbcTemplate jdbcTemplate, String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,163 @@
+package com.msr.data;
+
+import com.msr.model.Site;
+import com.msr.model.SiteAggregate;
+import com.msr.model.SiteField;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:sitedao")
+class SiteDaoTest {
+
+    @Autowired
+    private SiteDao siteDao;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Test
+    void testFindAll_MatchesRecomputedAggregates() {
+        List<Site> sites = siteDao.findAll();
+        List<SiteAggregate> expected = siteAggregateDao.recomputeAll();
+
+        assertEquals(expected.size(), sites.size());
+        for (int i = 0; i < sites.size(); i++) {
+            Site site = sites.get(i);
+            assertEquals(expected.get(i).getSiteId(), site.getId());
+            assertEquals(expected.get(i).getTotalSize(), site.getTotalSize());
+            assertEquals(expected.get(i).getPrimaryTypeId(),
+                         site.getPrimaryType() == null ? null : site.getPrimaryType().getId());
+        }
+    }
+
+    @Test
+    void testFindById() {
+        Optional<Site> result = siteDao.findById(5);
+
+        assertTrue(result.isPresent());
+        assertEquals("Bellagio", result.get().getName());
+        assertEquals(1050000, result.get().getTotalSize());
+        assertEquals(37, result.get().getPrimaryType().getId());
+        assertEquals("Casino", result.get().getPrimaryType().getName());
+
+        assertFalse(siteDao.findById(999).isPresent());
+    }
+
+    @Test
+    void testFindByState() {
+        List<Site> result = siteDao.findByState("CA");
+
+        assertEquals(5, result.size());
+        assertEquals("Measurabl HQ", result.get(0).getName());
+        assertEquals(13000, result.get(0).getTotalSize());
+        assertEquals(54, result.get(0).getPrimaryType().getId());
+        assertTrue(siteDao.findByState("FL").isEmpty());
+    }
+
+    @Test
+    void testFindByIds() {
+        List<Site> result = siteDao.findByIds(Arrays.asList(5, 999, 1));
+
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(0).getId());
+        assertEquals(13000, result.get(0).getTotalSize());
+        assertEquals(5, result.get(1).getId());
+        assertEquals(37, result.get(1).getPrimaryType().getId());
+    }
+
+    @Test
+    void testFindTextByIds() {
+        List<Site> result = siteDao.findTextByIds(Arrays.asList(5, 999));
+
+        assertEquals(1, result.size());
+        assertEquals("Bellagio", result.get(0).getName());
+        assertEquals("3600 S Las Vegas Blvd", result.get(0).getAddress());
+        assertEquals("Las Vegas", result.get(0).getCity());
+        // nothing aggregated
+        assertEquals(0, result.get(0).getTotalSize());
+
+        List<Site> all = new ArrayList<>();
+        siteDao.streamText(all::add);
+        assertEquals(6, all.size());
+    }
+
+    @Test
+    void testFindTop_MatchesSnapshot() {
+        SiteSnapshot snapshot = SiteSnapshot.of(0, siteDao.findAll());
+
+        assertEquals(snapshot.findTop(3, null, null), siteDao.findTop(3, null, null));
+        assertEquals(snapshot.findTop(10, "CA", null), siteDao.findTop(10, "CA", null));
+        assertEquals(snapshot.findTop(10, null, "casino"), siteDao.findTop(10, null, "casino"));
+        assertEquals(snapshot.findTop(2, "CA", "OFFICE"), siteDao.findTop(2, "CA", "OFFICE"));
+        assertTrue(siteDao.findTop(10, "NV", "Office").isEmpty());
+    }
+
+    @Test
+    void testFindBySize_MatchesSnapshot() {
+        SiteSnapshot snapshot = SiteSnapshot.of(0, siteDao.findAll());
+
+        assertEquals(snapshot.findBySize(20000, null, null, null), siteDao.findBySize(20000, null, null, null));
+        assertEquals(snapshot.findBySize(null, 35000, "office", "CA"), siteDao.findBySize(null, 35000, "office", "CA"));
+        assertEquals(snapshot.findBySize(0, 0, null, null), siteDao.findBySize(0, 0, null, null));
+        assertEquals(snapshot.findBySize(null, null, "CASINO", null), siteDao.findBySize(null, null, "CASINO", null));
+        assertTrue(siteDao.findBySize(null, null, "Stadium", "NV").isEmpty());
+    }
+
+    @Test
+    void testFindByPattern_MatchesSnapshot() {
+        SiteSnapshot snapshot = SiteSnapshot.of(0, siteDao.findAll());
+
+        assertEquals(snapshot.findByPattern("921*", null, null),
+                     siteDao.findByPattern(SiteDao.likePattern("921*"), null, null));
+        assertEquals(snapshot.findByPattern("92101", "san*", "CA"),
+                     siteDao.findByPattern(SiteDao.likePattern("92101"), SiteDao.likePattern("san*"), "CA"));
+        assertEquals(snapshot.findByPattern(null, "las vegas", null),
+                     siteDao.findByPattern(null, SiteDao.likePattern("las vegas"), null));
+        assertEquals(1, siteDao.findByPattern(SiteDao.likePattern("8*"), null, null).size());
+        // LIKE wildcards in a pattern match only themselves
+        assertTrue(siteDao.findByPattern(SiteDao.likePattern("92_01"), null, null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> SiteDao.likePattern("9*1"));
+    }
+
+    @Test
+    void testFindFields() {
+        Set<SiteField> fields = EnumSet.of(SiteField.ID, SiteField.NAME);
+        List<Map<String, Object>> result = siteDao.findFields(fields, "CA");
+
+        assertEquals(5, result.size());
+        assertEquals(Arrays.asList("id", "name"), new ArrayList<>(result.get(0).keySet()));
+        assertEquals("Measurabl HQ", result.get(0).get("name"));
+
+        Optional<Map<String, Object>> bellagio = siteDao.findFieldsById(EnumSet.of(SiteField.CITY), 5);
+        assertTrue(bellagio.isPresent());
+        assertEquals(Collections.singletonMap("city", "Las Vegas"), bellagio.get());
+        assertFalse(siteDao.findFieldsById(fields, 999).isPresent());
+    }
+
+    @Test
+    void testFindFields_RejectsAggregatedFields() {
+        // translated like any exception leaving a @Repository
+        InvalidDataAccessApiUsageException e = assertThrows(
+                InvalidDataAccessApiUsageException.class,
+                () -> siteDao.findFields(EnumSet.of(SiteField.ID, SiteField.TOTAL_SIZE), null));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+}
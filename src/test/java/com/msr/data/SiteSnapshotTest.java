@@ -0,0 +1,170 @@
+package com.msr.data;
+
+import com.msr.model.Site;
+import com.msr.model.UseType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SiteSnapshotTest {
+
+    private final UseType office = UseType.builder().id(54).name("Office").build();
+    private final UseType casino = UseType.builder().id(37).name("Casino").build();
+
+    private final SiteSnapshot snapshot = SiteSnapshot.of(7, Arrays.asList(
+            site(6, "CA", 560000, null),
+            site(5, "NV", 1050000, casino),
+            site(1, "CA", 13000, office),
+            site(3, "CA", 35000, UseType.builder().id(54).name("Office").build())));
+
+    @Test
+    void testFindByState() {
+        List<Site> sites = snapshot.findByState("CA");
+
+        assertEquals(3, sites.size());
+        assertEquals(1, sites.get(0).getId());
+        assertEquals(3, sites.get(1).getId());
+        assertEquals(6, sites.get(2).getId());
+        assertEquals(13000, sites.get(0).getTotalSize());
+        assertEquals("Site 1", sites.get(0).getName());
+        assertEquals("CA", sites.get(0).getState());
+        // use types are dictionary encoded: equal types come back as one instance
+        assertSame(sites.get(0).getPrimaryType(), sites.get(1).getPrimaryType());
+        assertNull(sites.get(2).getPrimaryType());
+
+        assertEquals(1, snapshot.findByState("NV").size());
+        assertEquals(casino, snapshot.findByState("NV").get(0).getPrimaryType());
+        assertTrue(snapshot.findByState("FL").isEmpty());
+    }
+
+    @Test
+    void testFindTop() {
+        assertEquals(Arrays.asList(5, 6), ids(snapshot.findTop(2, null, null)));
+        assertEquals(Arrays.asList(6, 3, 1), ids(snapshot.findTop(10, "CA", null)));
+        assertEquals(Arrays.asList(3, 1), ids(snapshot.findTop(10, null, "office")));
+        assertEquals(Arrays.asList(3), ids(snapshot.findTop(1, "CA", "OFFICE")));
+        assertTrue(snapshot.findTop(10, "NV", "Office").isEmpty());
+        assertTrue(snapshot.findTop(10, "TX", null).isEmpty());
+        assertTrue(snapshot.findTop(10, null, "Stadium").isEmpty());
+    }
+
+    @Test
+    void testFindTop_TypesSharingAName() {
+        SiteSnapshot sites = SiteSnapshot.of(1, Arrays.asList(
+                site(1, "CA", 10, office),
+                site(2, "CA", 20, UseType.builder().id(57).name("Office").build()),
+                site(3, "CA", 20, casino)));
+
+        assertEquals(Arrays.asList(2, 1), ids(sites.findTop(10, null, "Office")));
+        // equal sizes go by id
+        assertEquals(Arrays.asList(2, 3, 1), ids(sites.findTop(10, "CA", null)));
+    }
+
+    @Test
+    void testFindTop_StateAndType() {
+        SiteSnapshot sites = SiteSnapshot.of(1, Arrays.asList(
+                site(1, "CA", 50, casino),
+                site(2, "CA", 40, office),
+                site(3, "CA", 90, null),
+                site(4, "CA", 30, office),
+                site(5, "NV", 60, office),
+                site(6, "CA", 10, office)));
+
+        assertEquals(Arrays.asList(2, 4), ids(sites.findTop(2, "CA", "office")));
+        assertEquals(Arrays.asList(1), ids(sites.findTop(5, "CA", "casino")));
+        assertEquals(Arrays.asList(5), ids(sites.findTop(5, "NV", "office")));
+        assertEquals(Arrays.asList(4, 6), ids(sites.findBySize(null, 35, "office", "CA")));
+        assertTrue(sites.findTop(5, "NV", "casino").isEmpty());
+    }
+
+    @Test
+    void testFindBySize() {
+        assertEquals(Arrays.asList(3, 5, 6), ids(snapshot.findBySize(20000, null, null, null)));
+        assertEquals(Arrays.asList(1, 3), ids(snapshot.findBySize(null, 35000, null, null)));
+        assertEquals(Arrays.asList(3), ids(snapshot.findBySize(35000, 35000, null, "CA")));
+        assertEquals(Arrays.asList(1, 3), ids(snapshot.findBySize(13000, 35000, "office", "CA")));
+        assertEquals(Arrays.asList(3), ids(snapshot.findBySize(14000, null, "Office", null)));
+        assertEquals(Arrays.asList(1, 3, 6), ids(snapshot.findBySize(null, null, null, "CA")));
+        assertEquals(Arrays.asList(5), ids(snapshot.findBySize(null, Integer.MAX_VALUE, "casino", null)));
+        assertTrue(snapshot.findBySize(null, null, "casino", "CA").isEmpty());
+        assertTrue(snapshot.findBySize(600000, 500000, null, null).isEmpty());
+        assertTrue(snapshot.findBySize(null, null, "Stadium", null).isEmpty());
+    }
+
+    @Test
+    void testWith() {
+        SiteSnapshot next = snapshot.with(8, Arrays.asList(site(1, "NV", 2000000, office), site(9, "TX", 10, null)),
+                                          new HashSet<>(Arrays.asList(1, 6, 9)));
+
+        assertEquals(8, next.getVersion());
+        assertEquals(Arrays.asList(3), ids(next.findByState("CA")));
+        assertEquals(Arrays.asList(1, 5, 3, 9), ids(next.findTop(10, null, null)));
+        assertEquals(Arrays.asList(1, 3), ids(next.findTop(10, null, "office")));
+        // the snapshot it came from is left as it was
+        assertEquals(Arrays.asList(1, 3, 6), ids(snapshot.findByState("CA")));
+    }
+
+    @Test
+    void testFootprint() {
+        Map<String, Long> footprint = snapshot.footprint();
+
+        assertEquals(4, footprint.get("rows"));
+        assertEquals(2, footprint.get("states"));
+        assertEquals(2, footprint.get("useTypes"));
+        assertEquals(16 + 4 * 4, footprint.get("idsBytes"));
+        assertTrue(footprint.get("totalBytes") > footprint.get("namesBytes"));
+        assertEquals(7, snapshot.getVersion());
+    }
+
+    @Test
+    void testFindByPattern() {
+        SiteSnapshot places = SiteSnapshot.of(1, Arrays.asList(
+                place(4, "CA", "San Diego", "92101"),
+                place(2, "CA", "Santa Ana", "92701"),
+                place(9, "CA", "Los Angeles", "90012"),
+                place(1, "CA", "san diego", "92121"),
+                place(7, "NV", "Sandy Valley", "89019")));
+
+        assertEquals(Arrays.asList(1, 4), ids(places.findByPattern("921*", null, null)));
+        assertEquals(Arrays.asList(4), ids(places.findByPattern("92101", null, null)));
+        assertTrue(places.findByPattern("9210", null, null).isEmpty());
+        // cities ignore case, results are ordered by id across index rows
+        assertEquals(Arrays.asList(1, 2, 4, 7), ids(places.findByPattern(null, "SAN*", null)));
+        assertEquals(Arrays.asList(1, 4), ids(places.findByPattern(null, "San Diego", null)));
+        assertEquals(Arrays.asList(1, 2, 4), ids(places.findByPattern(null, "san*", "CA")));
+        assertEquals(Arrays.asList(1, 2, 4), ids(places.findByPattern("92*", "San*", null)));
+        assertEquals(Arrays.asList(2), ids(places.findByPattern("927*", "San*", "CA")));
+        assertTrue(places.findByPattern("*", null, "TX").isEmpty());
+        assertEquals(5, places.findByPattern("*", null, null).size());
+        assertEquals("Santa Ana", places.findByPattern(null, "santa*", null).get(0).getCity());
+    }
+
+    @Test
+    void testFindByPattern_RejectsMisplacedWildcard() {
+        assertThrows(IllegalArgumentException.class, () -> snapshot.findByPattern("9*1", null, null));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.findByPattern(null, null, "CA"));
+    }
+
+    private static List<Integer> ids(List<Site> sites) {
+        return sites.stream().map(Site::getId).collect(Collectors.toList());
+    }
+
+    private static Site place(int id, String state, String city, String zipcode) {
+        return site(id, state, 0, null).toBuilder().city(city).zipcode(zipcode).build();
+    }
+
+    private static Site site(int id, String state, int totalSize, UseType primaryType) {
+        return Site.builder().id(id).name("Site " + id).address(id + " Main St").city("San Diego").state(state)
+                   .zipcode("92101").totalSize(totalSize).primaryType(primaryType).build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.msr.data;
+
+import com.msr.model.Site;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SiteTextIndexTest {
+
+    private final SiteTextIndex index = SiteTextIndex.of(Arrays.asList(
+            site(1, "Measurabl HQ", "707 Broadway Suite 1000", "San Diego"),
+            site(5, "Bellagio", "3600 S Las Vegas Blvd", "Las Vegas"),
+            site(6, "Petco Park", "100 Park Blvd", "San Diego"),
+            site(7, "Park Plaza", "1 Main St", "Austin"),
+            // far apart ids need multi-byte gaps
+            site(1_000_000, "Broadway Plaza", "1 Broadway", "New York")));
+
+    @Test
+    void testSearch() {
+        // name matches outweigh address matches
+        assertArrayEquals(new int[]{6, 7}, index.search("park", 10));
+        assertArrayEquals(new int[]{1_000_000, 1}, index.search("Broadway", 10));
+        assertArrayEquals(new int[]{6, 7}, index.search("PETCO park", 10));
+        // equal scores go by id
+        assertArrayEquals(new int[]{5, 6}, index.search("blvd", 10));
+        assertArrayEquals(new int[]{5}, index.search("blvd", 1));
+        // site 1 has all three words, site 6 two of them
+        assertArrayEquals(new int[]{1_000_000, 1, 6}, index.search("san diego broadway", 10));
+        assertEquals(0, index.search("stadium", 10).length);
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void testSearch_NoTerms() {
+        assertThrows(IllegalArgumentException.class, () -> index.search(" ,+ ", 10));
+    }
+
+    @Test
+    void testUpdate() {
+        index.update(Collections.singletonList(site(6, "Snapdragon Stadium", "2101 Stadium Way", "San Diego")),
+                     Collections.singletonList(5));
+
+        assertEquals(0, index.search("petco", 10).length);
+        assertArrayEquals(new int[]{7}, index.search("park", 10));
+        assertArrayEquals(new int[]{6}, index.search("stadium", 10));
+        assertEquals(0, index.search("vegas", 10).length);
+        assertArrayEquals(new int[]{1, 6}, index.search("diego", 10));
+        assertEquals(4, index.size());
+        assertEquals(4, index.footprint().get("sites"));
+    }
+
+    @Test
+    void testFootprint() {
+        long terms = index.footprint().get("terms");
+        long postingBytes = index.footprint().get("postingBytes");
+
+        // an unchanged site leaves the postings as they are
+        index.update(Collections.singletonList(site(7, "Park Plaza", "1 Main St", "Austin")), Collections.emptySet());
+
+        assertEquals(terms, index.footprint().get("terms"));
+        assertEquals(postingBytes, index.footprint().get("postingBytes"));
+        assertTrue(index.footprint().get("totalBytes") > postingBytes);
+    }
+
+    @Test
+    void testTokenize() {
+        assertEquals(Arrays.asList("tavern", "bowl", "east", "village", "930"),
+                     SiteTextIndex.tokenize("Tavern+Bowl East-Village, 930"));
+        assertTrue(SiteTextIndex.tokenize(null).isEmpty());
+    }
+
+    private static Site site(int id, String name, String address, String city) {
+        return Site.builder().id(id).name(name).address(address).city(city).state("CA").zipcode("92101").build();
+    }
+}
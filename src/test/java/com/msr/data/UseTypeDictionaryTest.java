@@ -0,0 +1,89 @@
+package com.msr.data;
+
+import com.msr.model.Site;
+import com.msr.model.SiteUse;
+import com.msr.model.UseType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:usetypedictionary")
+class UseTypeDictionaryTest {
+
+    @Autowired
+    private UseTypeDictionary useTypeDictionary;
+
+    @Autowired
+    private UseTypeRepository useTypeRepository;
+
+    @Autowired
+    private SiteRepository siteRepository;
+
+    @Autowired
+    private SiteDao siteDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testLookups() {
+        UseType casino = useTypeDictionary.get(37);
+
+        assertEquals("Casino", casino.getName());
+        assertSame(casino, useTypeDictionary.getByName("casino"));
+        assertNull(useTypeDictionary.get(-1));
+        assertNull(useTypeDictionary.get(100000));
+        assertEquals(useTypeDictionary.all().size(), useTypeRepository.count());
+    }
+
+    @Test
+    void testLargeIdsOutsideTheArray() {
+        jdbcTemplate.update("INSERT INTO use_type (id, name) VALUES (2000000000, 'Hangar')");
+        try {
+            useTypeDictionary.reload();
+
+            UseType hangar = useTypeDictionary.get(2000000000);
+            assertEquals("Hangar", hangar.getName());
+            assertSame(hangar, useTypeDictionary.getByName("hangar"));
+            assertSame(hangar, useTypeDictionary.all().get(useTypeDictionary.all().size() - 1));
+            assertEquals("Casino", useTypeDictionary.get(37).getName());
+            assertNull(useTypeDictionary.get(1999999999));
+        } finally {
+            jdbcTemplate.update("DELETE FROM use_type WHERE id = 2000000000");
+            useTypeDictionary.reload();
+        }
+    }
+
+    @Test
+    void testRepositoryReadsAreCanonical() {
+        assertSame(useTypeDictionary.get(54), useTypeRepository.lookup(54).orElse(null));
+        assertTrue(useTypeRepository.lookupAll(Arrays.asList(54, -1)).stream()
+                                    .allMatch(t -> t == useTypeDictionary.get(54)));
+    }
+
+    @Test
+    @Transactional
+    void testLoadedSiteUsesShareCanonicalUseTypes() {
+        List<Site> sites = siteRepository.findAll();
+
+        for (Site site : sites) {
+            for (SiteUse siteUse : site.getSiteUses()) {
+                assertSame(useTypeDictionary.get(siteUse.getUseTypeId()), siteUse.getUseType());
+            }
+        }
+        Site bellagio = siteDao.findById(5).orElse(null);
+        assertSame(useTypeDictionary.get(37), bellagio.getPrimaryType());
+    }
+}
@@ -0,0 +1,50 @@
+package com.msr.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatasetVersionTest {
+
+    private final DatasetVersion datasetVersion = new DatasetVersion();
+
+    @Test
+    void testTagsAreStrongAndStableWithoutChanges() {
+        String etag = datasetVersion.etag();
+
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, datasetVersion.etag());
+        assertEquals(datasetVersion.etag(1), datasetVersion.etag(1));
+    }
+
+    @Test
+    void testSiteChangeOnlyInvalidatesThatSite() {
+        String dataset = datasetVersion.etag();
+        String site1 = datasetVersion.etag(1);
+        String site2 = datasetVersion.etag(2);
+
+        datasetVersion.onSitesChanged(SitesChangedEvent.of(Arrays.asList(1, 3)));
+
+        assertNotEquals(dataset, datasetVersion.etag());
+        assertNotEquals(site1, datasetVersion.etag(1));
+        assertEquals(site2, datasetVersion.etag(2));
+    }
+
+    @Test
+    void testAllSitesChangeInvalidatesEverySite() {
+        datasetVersion.onSitesChanged(SitesChangedEvent.of(Collections.singleton(1)));
+        String site1 = datasetVersion.etag(1);
+        String site2 = datasetVersion.etag(2);
+
+        datasetVersion.onSitesChanged(SitesChangedEvent.all());
+
+        assertNotEquals(site1, datasetVersion.etag(1));
+        assertNotEquals(site2, datasetVersion.etag(2));
+        assertEquals(datasetVersion.etag(), datasetVersion.etag(2));
+    }
+}
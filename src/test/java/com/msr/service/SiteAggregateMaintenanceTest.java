@@ -0,0 +1,97 @@
+package com.msr.service;
+
+import com.msr.data.SiteAggregateDao;
+import com.msr.data.UseTypeRepository;
+import com.msr.model.AggregateConsistencyReport;
+import com.msr.model.SiteAggregate;
+import com.msr.model.SiteUse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that site_aggregate follows site use writes and that the consistency checker notices drift
+ */
+@SpringBootTest
+@Transactional
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:siteaggregates")
+class SiteAggregateMaintenanceTest {
+
+    @Autowired
+    private SiteUseService siteUseService;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Autowired
+    private SiteAggregateConsistencyChecker checker;
+
+    @Autowired
+    private UseTypeRepository useTypeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testSeededAggregatesAreConsistent() {
+        AggregateConsistencyReport report = checker.check();
+
+        assertTrue(report.isConsistent());
+        assertEquals(6, report.getSitesChecked());
+        assertEquals(new SiteAggregate(1, 13000, 54), siteAggregateDao.findBySiteId(1).orElse(null));
+    }
+
+    @Test
+    void testAddSiteUse() {
+        siteUseService.addSiteUse(1, SiteUse.builder().id(1000).description("Vault").sizeSqft(100000)
+                                            .useType(useTypeRepository.findById(1).get()).build());
+
+        assertEquals(new SiteAggregate(1, 113000, 1), siteAggregateDao.findBySiteId(1).orElse(null));
+        assertTrue(checker.check().isConsistent());
+    }
+
+    @Test
+    void testUpdateSiteUse_MovesToOtherSite() {
+        SiteUse ballPark = SiteUse.builder().id(12).description("Ball Park").sizeSqft(560000)
+                                  .useType(useTypeRepository.findById(47).get()).build();
+
+        siteUseService.updateSiteUse(1, ballPark);
+
+        assertEquals(new SiteAggregate(1, 573000, 47), siteAggregateDao.findBySiteId(1).orElse(null));
+        SiteAggregate emptySite = siteAggregateDao.findBySiteId(6).orElse(null);
+        assertEquals(0, emptySite.getTotalSize());
+        assertNull(emptySite.getPrimaryTypeId());
+        assertTrue(checker.check().isConsistent());
+    }
+
+    @Test
+    void testRemoveSiteUse() {
+        siteUseService.removeSiteUse(10);
+
+        assertEquals(new SiteAggregate(5, 50000, 35), siteAggregateDao.findBySiteId(5).orElse(null));
+        assertTrue(checker.check().isConsistent());
+    }
+
+    @Test
+    void testCheckerReportsDrift() {
+        jdbcTemplate.update("UPDATE site_aggregate SET total_size = 1 WHERE site_id = 2");
+
+        AggregateConsistencyReport report = checker.check();
+
+        assertFalse(report.isConsistent());
+        assertEquals(1, report.getMismatches().size());
+        assertEquals(2, report.getMismatches().get(0).getSiteId());
+        assertEquals(65000, report.getMismatches().get(0).getExpected().getTotalSize());
+
+        checker.repair();
+        assertTrue(checker.check().isConsistent());
+    }
+}
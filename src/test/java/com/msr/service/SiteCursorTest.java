@@ -0,0 +1,21 @@
+package com.msr.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SiteCursorTest {
+
+    @Test
+    void testRoundTrip() {
+        assertEquals(42, SiteCursor.decode(SiteCursor.encode(42)));
+        assertEquals(Integer.MIN_VALUE, SiteCursor.decode(SiteCursor.encode(Integer.MIN_VALUE)));
+    }
+
+    @Test
+    void testInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> SiteCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> SiteCursor.decode(SiteCursor.encode(1).substring(1)));
+    }
+}
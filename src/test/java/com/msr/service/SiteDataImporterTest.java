@@ -0,0 +1,58 @@
+package com.msr.service;
+
+import com.msr.data.SiteAggregateDao;
+import com.msr.model.ImportReport;
+import com.msr.model.SiteAggregate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@DirtiesContext
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:siteimport",
+        "sites.import.chunk-size=2"
+})
+class SiteDataImporterTest {
+
+    @Autowired
+    private SiteDataImporter importer;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Autowired
+    private SiteAggregateConsistencyChecker checker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testImportAll() throws Exception {
+        List<ImportReport> reports = importer.importAll(new ClassPathResource("data/import/use_types.json"),
+                                                        new ClassPathResource("data/import/sites.json"),
+                                                        new ClassPathResource("data/import/site_uses.json"));
+
+        assertEquals(1, reports.get(0).getRecords());
+        assertEquals(3, reports.get(1).getRecords());
+        assertEquals(5, reports.get(2).getRecords());
+
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM site", Integer.class));
+        assertEquals(16, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM site_use", Integer.class));
+
+        assertEquals(new SiteAggregate(100, 15000, 200), siteAggregateDao.findBySiteId(100).orElse(null));
+        assertEquals(new SiteAggregate(101, 8000, 200), siteAggregateDao.findBySiteId(101).orElse(null));
+        // existing use replaced, new use added
+        assertEquals(new SiteAggregate(6, 620000, 47), siteAggregateDao.findBySiteId(6).orElse(null));
+        assertTrue(checker.check().isConsistent());
+    }
+}
@@ -0,0 +1,94 @@
+package com.msr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.msr.model.Site;
+import com.msr.model.UseType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SiteJsonCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final DatasetVersion datasetVersion = new DatasetVersion();
+
+    private final SiteJsonCache cache = new SiteJsonCache(objectMapper, datasetVersion, 100);
+
+    private final Site site = Site.builder().id(7).name("SpaceX").address("1111 Milky Way").city("Jupiter")
+                                  .state("TX").zipcode("10101").totalSize(12345)
+                                  .primaryType(UseType.builder().id(33).name("Home").build()).build();
+
+    @Test
+    void testJsonMatchesJackson() throws IOException {
+        assertArrayEquals(objectMapper.writeValueAsBytes(site), cache.json(site, datasetVersion.etag()));
+    }
+
+    @Test
+    void testUnchangedSiteIsServedFromCache() {
+        byte[] first = cache.json(site, datasetVersion.etag(site.getId()));
+
+        assertSame(first, cache.json(site, datasetVersion.etag()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testChangeOfTheSiteInvalidatesItsEntry() {
+        byte[] first = cache.json(site, datasetVersion.etag());
+        datasetVersion.onSitesChanged(SitesChangedEvent.of(Collections.singleton(site.getId())));
+
+        Site renamed = site.toBuilder().name("Starbase").build();
+        byte[] second = cache.json(renamed, datasetVersion.etag());
+
+        assertNotSame(first, second);
+        assertTrue(new String(second).contains("Starbase"));
+        assertSame(second, cache.json(renamed, datasetVersion.etag()));
+    }
+
+    @Test
+    void testChangeOfOtherSitesKeepsTheEntry() {
+        byte[] first = cache.json(site, datasetVersion.etag());
+        datasetVersion.onSitesChanged(SitesChangedEvent.of(Collections.singleton(site.getId() + 1)));
+
+        assertSame(first, cache.json(site, datasetVersion.etag()));
+    }
+
+    @Test
+    void testSiteLoadedBeforeAChangeIsNotCached() {
+        String loadedAt = datasetVersion.etag();
+        datasetVersion.onSitesChanged(SitesChangedEvent.of(Collections.singleton(site.getId())));
+
+        cache.json(site, loadedAt);
+        cache.json(site, null);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testGzipInflatesToJson() throws IOException {
+        String loadedAt = datasetVersion.etag();
+        byte[] gzip = cache.gzip(site, loadedAt);
+
+        assertSame(gzip, cache.gzip(site, loadedAt));
+        assertArrayEquals(cache.json(site, loadedAt),
+                          ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+    }
+
+    @Test
+    void testUnchangedSinceRejectsForeignTags() {
+        assertFalse(datasetVersion.unchangedSince(site.getId(), "\"0-99\""));
+        assertFalse(datasetVersion.unchangedSince(site.getId(), "W/\"x\""));
+        assertTrue(datasetVersion.unchangedSince(site.getId(), datasetVersion.etag()));
+    }
+}
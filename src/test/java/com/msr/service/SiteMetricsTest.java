@@ -0,0 +1,50 @@
+package com.msr.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sitemetrics",
+        "sites.read-path=jpa"
+})
+class SiteMetricsTest {
+
+    @Autowired
+    private SiteService siteService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testGetAllSites_Metered() {
+        int sites = siteService.getAllSites().size();
+        int uses = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM site_use", Integer.class);
+
+        assertEquals(1, meterRegistry.get(SiteService.TIMER).tag("method", "getAllSites").timer().count());
+        assertEquals(sites, meterRegistry.get("sites.rows.fetched").tag("operation", "getAllSites").summary()
+                                         .totalAmount());
+        assertEquals(uses, meterRegistry.get("sites.uses.aggregated").tag("operation", "getAllSites").summary()
+                                        .totalAmount());
+        assertTrue(meterRegistry.get("sites.aggregation").tag("operation", "getAllSites").timer().count() > 0);
+    }
+
+    @Test
+    void testHibernateStatisticsBound() {
+        siteService.getSitesByState("CA");
+
+        assertNotNull(meterRegistry.find("hibernate.query.executions").functionCounter());
+        assertNotNull(meterRegistry.find("hibernate.entities.loads").functionCounter());
+    }
+}
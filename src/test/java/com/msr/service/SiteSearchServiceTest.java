@@ -0,0 +1,79 @@
+package com.msr.service;
+
+import com.msr.model.Site;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that search results come ranked and aggregated, and that the index follows changed sites
+ */
+@SpringBootTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:sitesearch")
+class SiteSearchServiceTest {
+
+    @Autowired
+    private SiteSearchService siteSearchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void testSearch() {
+        List<Site> sites = siteSearchService.search("petco park", null);
+
+        assertEquals(1, sites.size());
+        assertEquals("Petco Park", sites.get(0).getName());
+        assertTrue(sites.get(0).getTotalSize() > 0);
+        assertThrows(IllegalArgumentException.class, () -> siteSearchService.search("broadway", 0));
+        assertThrows(IllegalArgumentException.class, () -> siteSearchService.search("!", null));
+    }
+
+    @Test
+    void testSearch_FollowsChanges() throws InterruptedException {
+        assertEquals(1, siteSearchService.search("bellagio", null).size());
+
+        jdbcTemplate.update("UPDATE site SET name = 'Aria' WHERE id = 5");
+        eventPublisher.publishEvent(SitesChangedEvent.of(Collections.singleton(5)));
+
+        awaitResults("aria");
+        assertTrue(siteSearchService.search("bellagio", null).isEmpty());
+        assertEquals(5, siteSearchService.search("aria", null).get(0).getId());
+        assertEquals(6, siteSearchService.footprint().get("sites"));
+    }
+
+    @Test
+    void testSearch_SkipsUseOnlyChanges() throws InterruptedException {
+        assertEquals(1, siteSearchService.search("arclight", null).size());
+
+        jdbcTemplate.update("UPDATE site SET name = 'Cinepolis' WHERE id = 2");
+        eventPublisher.publishEvent(SitesChangedEvent.usesOf(Collections.singleton(2)));
+        jdbcTemplate.update("UPDATE site SET name = 'Quarry Lanes' WHERE id = 4");
+        eventPublisher.publishEvent(SitesChangedEvent.of(Collections.singleton(4)));
+
+        // updates apply in order, so once the later one shows the earlier one was skipped, not pending
+        awaitResults("quarry");
+        assertTrue(siteSearchService.search("cinepolis", null).isEmpty());
+        assertEquals("Cinepolis", siteSearchService.search("arclight", null).get(0).getName());
+    }
+
+    private void awaitResults(String query) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (siteSearchService.search(query, null).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
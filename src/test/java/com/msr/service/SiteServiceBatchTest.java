@@ -0,0 +1,54 @@
+package com.msr.service;
+
+import com.msr.model.Site;
+import com.msr.model.SiteBatch;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sitebatch",
+        "sites.read-path=aggregate",
+        "sites.batch.max-ids=10"
+})
+class SiteServiceBatchTest {
+
+    @Autowired
+    private SiteService siteService;
+
+    @Test
+    void testGetSitesByIds_RequestOrderAndMissing() {
+        SiteBatch batch = siteService.getSitesByIds(Arrays.asList(5, 999, 1, 5));
+
+        assertEquals(Arrays.asList(5, 1), batch.getSites().stream().map(Site::getId).collect(Collectors.toList()));
+        assertEquals(1050000, batch.getSites().get(0).getTotalSize());
+        assertEquals("Casino", batch.getSites().get(0).getPrimaryType().getName());
+        assertEquals(13000, batch.getSites().get(1).getTotalSize());
+        assertEquals(Collections.singletonList(999), batch.getMissing());
+    }
+
+    @Test
+    void testGetSitesByIds_Empty() {
+        SiteBatch batch = siteService.getSitesByIds(Collections.emptyList());
+
+        assertTrue(batch.getSites().isEmpty());
+        assertTrue(batch.getMissing().isEmpty());
+    }
+
+    @Test
+    void testGetSitesByIds_TooMany() {
+        assertThrows(IllegalArgumentException.class, () -> siteService.getSitesByIds(
+                IntStream.rangeClosed(1, 11).boxed().collect(Collectors.toList())));
+    }
+}
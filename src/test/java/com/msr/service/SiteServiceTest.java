@@ -1,9 +1,13 @@
 package com.msr.service;
 
+import com.msr.data.SiteAggregateDao;
+import com.msr.data.SiteDao;
 import com.msr.data.SiteRepository;
+import com.msr.data.UseTypeRepository;
 import com.msr.model.Site;
 import com.msr.model.SiteUse;
 import com.msr.model.UseType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -32,6 +36,11 @@ public class SiteServiceTest {
 		public SiteService employeeService() {
 			return new SiteService();
 		}
+
+		@Bean
+		public SiteMetrics siteMetrics() {
+			return new SiteMetrics(new SimpleMeterRegistry());
+		}
 	}
 
 	@Autowired
@@ -40,6 +49,18 @@ public class SiteServiceTest {
 	@MockBean
 	private SiteRepository siteRepository;
 
+	@MockBean
+	private SiteAggregateDao siteAggregateDao;
+
+	@MockBean
+	private UseTypeRepository useTypeRepository;
+
+	@MockBean
+	private SiteDao siteDao;
+
+	@MockBean
+	private SiteSnapshotService siteSnapshotService;
+
 	private Site santaSite;
 	private Site elonSite;
 	private SiteUse siteUse1;
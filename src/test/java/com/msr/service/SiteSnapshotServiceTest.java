@@ -0,0 +1,63 @@
+package com.msr.service;
+
+import com.msr.data.SiteSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the snapshot is never handed out behind a change and catches up without a reader waiting
+ */
+@SpringBootTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:sitesnapshot")
+class SiteSnapshotServiceTest {
+
+    @Autowired
+    private SiteSnapshotService siteSnapshotService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void testUpToDate_CatchesUpWithChangedSites() throws InterruptedException {
+        SiteSnapshot built = awaitUpToDate();
+        assertEquals(6, built.size());
+        assertEquals("Bellagio", built.findByState("NV").get(0).getName());
+
+        jdbcTemplate.update("UPDATE site SET name = 'Aria' WHERE id = 5");
+        eventPublisher.publishEvent(SitesChangedEvent.of(Collections.singleton(5)));
+
+        // the previous snapshot is not handed out as up to date
+        Optional<SiteSnapshot> stale = siteSnapshotService.upToDate();
+        assertFalse(stale.isPresent() && stale.get() == built);
+
+        SiteSnapshot updated = awaitUpToDate();
+        assertEquals("Aria", updated.findByState("NV").get(0).getName());
+        assertEquals(6, updated.size());
+        assertEquals("Bellagio", built.findByState("NV").get(0).getName());
+    }
+
+    private SiteSnapshot awaitUpToDate() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        Optional<SiteSnapshot> snapshot = siteSnapshotService.upToDate();
+        while (!snapshot.isPresent() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            snapshot = siteSnapshotService.upToDate();
+        }
+        assertTrue(snapshot.isPresent(), "snapshot did not catch up");
+        return snapshot.get();
+    }
+}
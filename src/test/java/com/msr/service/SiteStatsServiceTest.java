@@ -0,0 +1,68 @@
+package com.msr.service;
+
+import com.msr.data.SiteStatsDao;
+import com.msr.model.Site;
+import com.msr.model.SiteStats;
+import com.msr.model.UseType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:sitestats")
+class SiteStatsServiceTest {
+
+    @Autowired
+    private SiteStatsService siteStatsService;
+
+    @Autowired
+    private SiteService siteService;
+
+    @Autowired
+    private SiteStatsDao siteStatsDao;
+
+    @Test
+    void testSeededStats() {
+        SiteStats stats = siteStatsService.summarize(siteService.getAllSites());
+
+        assertEquals(6, stats.getSites());
+        assertEquals(5, stats.getByState().get("CA").getSites());
+        assertEquals(1050000, stats.getByState().get("NV").getTotalSize());
+        assertEquals(1050000, stats.getByCity().get("Las Vegas, NV").getTotalSize());
+        assertEquals(1, stats.getByPrimaryType().get("Casino").getSites());
+        assertEquals(stats.getSites(), stats.getSizeHistogram().stream().mapToLong(SiteStats.SizeBucket::getSites).sum());
+    }
+
+    @Test
+    void testSqlMatchesMemory() {
+        assertEquals(siteStatsService.summarize(siteService.getAllSites()), siteStatsDao.getStats());
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        Random random = new Random(7);
+        UseType[] useTypes = {null, UseType.builder().id(1).name("Office").build(),
+                UseType.builder().id(2).name("Retail").build()};
+        String[] states = {"CA", "NV", "TX"};
+        List<Site> sites = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            String state = states[random.nextInt(states.length)];
+            sites.add(Site.builder().id(i).state(state).city("City " + random.nextInt(20))
+                          .totalSize(random.nextInt(20_000_000)).primaryType(useTypes[random.nextInt(3)]).build());
+        }
+
+        SiteStats sequential = sites.stream().collect(SiteStatsAccumulator.collector());
+        SiteStats parallel = sites.parallelStream().collect(SiteStatsAccumulator.collector());
+
+        assertEquals(sequential, parallel);
+        assertEquals(sequential, siteStatsService.summarize(sites));
+        assertEquals(50_000, parallel.getSites());
+    }
+}
@@ -0,0 +1,99 @@
+package com.msr.service;
+
+import com.msr.data.SiteAggregateDao;
+import com.msr.model.BulkIngestReport;
+import com.msr.model.SiteAggregate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that bulk uploaded site uses are written in batches with their aggregates and that bad lines are reported
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:siteuseingest",
+        "sites.bulk.chunk-size=2",
+        "sites.bulk.max-line-length=100"
+})
+class SiteUseIngestServiceTest {
+
+    @Autowired
+    private SiteUseIngestService ingestService;
+
+    @Autowired
+    private SiteAggregateDao siteAggregateDao;
+
+    @Autowired
+    private SiteAggregateConsistencyChecker checker;
+
+    @Test
+    void testIngest() throws IOException {
+        String ndjson = String.join("\n",
+                "{\"id\":4,\"site_id\":2,\"description\":\"MSR Data Center\",\"size_sqft\":4000,\"use_type_id\":4}",
+                "{\"id\":",
+                "",
+                "{\"id\":100,\"site_id\":3,\"description\":\"Arcade\",\"size_sqft\":1000,\"use_type_id\":16}",
+                "{\"id\":101,\"site_id\":99,\"description\":\"Nowhere\",\"size_sqft\":1000,\"use_type_id\":16}",
+                "{\"id\":102,\"site_id\":3,\"description\":\"Unknown\",\"size_sqft\":10,\"use_type_id\":9999}");
+
+        BulkIngestReport report = ingestService.ingest(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, report.getAccepted());
+        assertEquals(3, report.getRejected());
+        Map<Long, String> errors = report.getErrors().stream().collect(
+                Collectors.toMap(BulkIngestReport.LineError::getLine, BulkIngestReport.LineError::getMessage));
+        assertEquals(3, errors.size());
+        assertTrue(errors.get(2L).startsWith("malformed site use"));
+        assertEquals("unknown site 99", errors.get(5L));
+        assertEquals("unknown use type 9999", errors.get(6L));
+
+        // use 4 moved from site 1 to site 2, use 100 was added to site 3
+        assertEquals(new SiteAggregate(1, 9000, 54), siteAggregateDao.findBySiteId(1).orElse(null));
+        assertEquals(69000, siteAggregateDao.findBySiteId(2).get().getTotalSize());
+        assertEquals(36000, siteAggregateDao.findBySiteId(3).get().getTotalSize());
+        assertTrue(checker.check().isConsistent());
+    }
+
+    @Test
+    void testIngest_RejectsOverlongLines() throws IOException {
+        // whitespace is valid JSON, only the length is wrong
+        String padding = new String(new char[100]).replace('\0', ' ');
+        String ndjson = String.join("\r\n",
+                "{\"id\":200,\"site_id\":6," + padding
+                        + "\"description\":\"Suite\",\"size_sqft\":10,\"use_type_id\":16}",
+                "{\"id\":201,\"site_id\":6,\"description\":\"Dugout\",\"size_sqft\":20,\"use_type_id\":16}");
+
+        BulkIngestReport report = ingestService.ingest(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, report.getAccepted());
+        assertEquals(1, report.getRejected());
+        assertEquals(1L, report.getErrors().get(0).getLine());
+        assertEquals("line longer than 100 characters", report.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void testIngest_ErrorsAreCapped() throws IOException {
+        String[] lines = new String[150];
+        Arrays.fill(lines, "not json");
+
+        BulkIngestReport report = ingestService.ingest(
+                new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(0, report.getAccepted());
+        assertEquals(150, report.getRejected());
+        assertEquals(100, report.getErrors().size());
+    }
+}
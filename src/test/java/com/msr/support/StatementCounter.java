@@ -0,0 +1,90 @@
+package com.msr.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test configuration that wraps the application DataSource and counts every SQL statement sent through it, whether
+ * it comes from Hibernate or from plain JDBC.
+ */
+@TestConfiguration
+public class StatementCounter {
+
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    public static void reset() {
+        STATEMENTS.set(0);
+    }
+
+    public static int count() {
+        return STATEMENTS.get();
+    }
+
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource && !(bean instanceof CountingDataSource)
+                        ? new CountingDataSource((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    private static class CountingDataSource extends DelegatingDataSource {
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return countingConnection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return countingConnection(super.getConnection(username, password));
+        }
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                StatementCounter.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("prepareStatement") || name.equals("prepareCall")) {
+                        STATEMENTS.incrementAndGet();
+                    }
+                    Object result = invoke(connection, method, args);
+                    return name.equals("createStatement") ? countingStatement((Statement) result) : result;
+                });
+    }
+
+    private static Statement countingStatement(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(
+                StatementCounter.class.getClassLoader(), new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        STATEMENTS.incrementAndGet();
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
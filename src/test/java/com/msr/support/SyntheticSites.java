@@ -0,0 +1,68 @@
+package com.msr.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible site and site use rows for benchmarks and load tests.
+ *
+ * Ids start above the bundled data.sql rows. Uses per site vary around the requested average and sizes are skewed, so
+ * primary types are not decided by the first use. Aggregates are not maintained; rebuild them after seeding.
+ */
+public final class SyntheticSites {
+
+    public static final int FIRST_SITE_ID = 1_000_000;
+
+    public static final String[] STATES = {"CA", "CA", "CA", "NV", "TX", "TX", "NY", "WA", "MN", "FL"};
+
+    private static final String[] CITIES = {"San Diego", "San Francisco", "Las Vegas", "Austin", "Dallas",
+            "New York", "Seattle", "Minneapolis", "Miami", "Sacramento"};
+
+    /* use_type ids present in data.sql */
+    private static final int MAX_USE_TYPE_ID = 112;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private SyntheticSites() {
+    }
+
+    /**
+     * Inserts sites with ids FIRST_SITE_ID .. FIRST_SITE_ID + sites - 1 and on average usesPerSite uses each.
+     */
+    public static void seed(JdbcTemplate jdbcTemplate, int sites, int usesPerSite, long seed) {
+        Random random = new Random(seed);
+        List<Object[]> siteRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> useRows = new ArrayList<>(BATCH_SIZE);
+        int siteUseId = FIRST_SITE_ID;
+
+        for (int i = 0; i < sites; i++) {
+            int siteId = FIRST_SITE_ID + i;
+            siteRows.add(new Object[]{siteId, "Site " + siteId, (100 + random.nextInt(9900)) + " Main St",
+                    CITIES[random.nextInt(CITIES.length)], STATES[random.nextInt(STATES.length)],
+                    String.valueOf(10000 + random.nextInt(89999))});
+
+            int uses = usesPerSite <= 1 ? usesPerSite : 1 + random.nextInt(2 * usesPerSite - 1);
+            for (int u = 0; u < uses; u++) {
+                int size = 100 + (int) (Math.abs(random.nextGaussian()) * 20000);
+                useRows.add(new Object[]{siteUseId++, "Use " + u, size, siteId, 1 + random.nextInt(MAX_USE_TYPE_ID)});
+            }
+
+            if (siteRows.size() >= BATCH_SIZE) {
+                flush(jdbcTemplate, siteRows, useRows);
+            }
+        }
+        flush(jdbcTemplate, siteRows, useRows);
+    }
+
+    private static void flush(JdbcTemplate jdbcTemplate, List<Object[]> siteRows, List<Object[]> useRows) {
+        jdbcTemplate.batchUpdate("INSERT INTO site (id, name, address, city, state, zipcode) VALUES (?, ?, ?, ?, ?, ?)",
+                                 siteRows);
+        jdbcTemplate.batchUpdate("INSERT INTO site_use (id, description, size_sqft, site_id, use_type_id) "
+                                         + "VALUES (?, ?, ?, ?, ?)", useRows);
+        siteRows.clear();
+        useRows.clear();
+    }
+}
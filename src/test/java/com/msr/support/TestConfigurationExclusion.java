@@ -0,0 +1,29 @@
+package com.msr.support;
+
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+/**
+ * Keeps the test configurations of other tests out of an application started outside the test context framework,
+ * which would otherwise pick them up through the component scan of @SpringBootApplication.
+ *
+ * new SpringApplicationBuilder(BuildingsApiApplication.class).initializers(new TestConfigurationExclusion())...
+ */
+public final class TestConfigurationExclusion
+        implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        // the component scan skips what TypeExcludeFilter beans match
+        context.getBeanFactory().registerSingleton("testConfigurationExcludeFilter", new TypeExcludeFilter() {
+            @Override
+            public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+                return metadataReader.getAnnotationMetadata().hasAnnotation(TestConfiguration.class.getName());
+            }
+        });
+    }
+}